@@ -0,0 +1,75 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building bulk requests the way bulkInit / HighLevelExample.indexEvents do,
+ * and sending them through the client to the fake cluster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkRequestBenchmark {
+
+    @Param({"5", "100", "1000"})
+    public int size;
+
+    private List<ElkEvent> events;
+    private FakeElasticsearch fake;
+    private ElasticsearchClient es;
+
+    @Setup
+    public void setup() throws Exception {
+        events = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            events.add(FakeElasticsearch.sampleEvent(i));
+        }
+        fake = new FakeElasticsearch(0);
+        es = fake.client();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        es.close();
+        fake.close();
+    }
+
+    @Benchmark
+    public BulkRequest build() {
+        BulkRequest.Builder bulk = new BulkRequest.Builder();
+        for (ElkEvent event : events) {
+            bulk.operations(op -> op
+                    .index(idx -> idx
+                            .index("events")
+                            .id(event.id())
+                            .document(event)));
+        }
+        return bulk.build();
+    }
+
+    @Benchmark
+    public BulkResponse buildAndSend() throws Exception {
+        return es.bulk(build());
+    }
+}
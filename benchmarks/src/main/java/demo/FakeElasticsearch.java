@@ -0,0 +1,204 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for Elasticsearch that answers _search and _bulk with canned
+ * bodies, so benchmarks measure client and transport cost without a cluster.
+ * Like Elasticsearch it reads SMILE bulks and answers in the format the client accepts.
+ */
+public class FakeElasticsearch implements AutoCloseable {
+
+    static {
+        // without it Nagle + delayed ACK add ~40ms to every small response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] searchResponse;
+    private final Map<ClientProperties.Format, byte[]> encodedSearchResponses = new ConcurrentHashMap<>();
+    private volatile long latencyMs;
+
+    public FakeElasticsearch(int hits) throws IOException {
+        this.searchResponse = searchResponse(hits);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /** Delays every response by {@code millis}, as a cluster across a network would. */
+    public FakeElasticsearch latency(long millis) {
+        this.latencyMs = millis;
+        return this;
+    }
+
+    public HttpHost host() {
+        return new HttpHost("127.0.0.1", server.getAddress().getPort(), "http");
+    }
+
+    public RestClient restClient() {
+        return RestClient.builder(host()).build();
+    }
+
+    public ElasticsearchClient client() {
+        return client(ClientProperties.Format.JSON);
+    }
+
+    /** A client whose bodies are in {@code format}, as events.client.format would set up. */
+    public ElasticsearchClient client(ClientProperties.Format format) {
+        JacksonJsonpMapper json = new JacksonJsonpMapper(EventService.objectMapper());
+        return new ElasticsearchClient(format == ClientProperties.Format.JSON
+                ? new RestClientTransport(restClient(), json)
+                : new WireFormatTransport(restClient(), format, json, null));
+    }
+
+    public byte[] searchResponse() {
+        return searchResponse;
+    }
+
+    /** The canned search response as it goes over the wire in {@code format}. */
+    public byte[] searchResponse(ClientProperties.Format format) {
+        return encodedSearchResponses.computeIfAbsent(format, f -> encode(searchResponse, f));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ClientProperties.Format format = format(ex.getRequestHeaders().getFirst("Accept"));
+        byte[] body;
+        try (InputStream in = ex.getRequestBody()) {
+            String path = ex.getRequestURI().getPath();
+            if (path.endsWith("/_search")) {
+                in.transferTo(OutputStream.nullOutputStream());
+                body = searchResponse(format);
+            } else if (path.endsWith("/_bulk")) {
+                boolean smile = format(ex.getRequestHeaders().getFirst("Content-Type")) == ClientProperties.Format.SMILE;
+                body = encode(bulkResponse(countLines(in, smile ? (byte) 0xFF : (byte) '\n') / 2), format);
+            } else {
+                in.transferTo(OutputStream.nullOutputStream());
+                body = encode("{}".getBytes(StandardCharsets.UTF_8), format);
+            }
+        }
+        ex.getResponseHeaders().add("Content-Type", format == ClientProperties.Format.JSON
+                ? "application/json" : "application/" + format.name().toLowerCase(Locale.ROOT));
+        ex.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ClientProperties.Format format(String mediaType) {
+        if (mediaType != null && mediaType.contains("smile")) {
+            return ClientProperties.Format.SMILE;
+        }
+        return mediaType != null && mediaType.contains("cbor") ? ClientProperties.Format.CBOR : ClientProperties.Format.JSON;
+    }
+
+    private static byte[] encode(byte[] json, ClientProperties.Format format) {
+        if (format == ClientProperties.Format.JSON) {
+            return json;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser p = new JsonFactory().createParser(json);
+             JsonGenerator g = WireFormatTransport.factory(format).createGenerator(out)) {
+            p.nextToken();
+            g.copyCurrentStructure(p);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int countLines(InputStream in, byte separator) throws IOException {
+        byte[] buf = new byte[8192];
+        int lines = 0;
+        for (int n; (n = in.read(buf)) != -1; ) {
+            for (int i = 0; i < n; i++) {
+                if (buf[i] == separator) {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static byte[] bulkResponse(int items) {
+        StringBuilder sb = new StringBuilder("{\"took\":1,\"errors\":false,\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"index\":{\"_index\":\"events\",\"_id\":\"").append(i)
+                    .append("\",\"_version\":1,\"result\":\"created\",\"status\":201}}");
+        }
+        return sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] searchResponse(int hits) {
+        try {
+            var om = EventService.objectMapper();
+            StringBuilder sb = new StringBuilder("{\"took\":1,\"timed_out\":false,")
+                    .append("\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                    .append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},")
+                    .append("\"max_score\":1.0,\"hits\":[");
+            for (int i = 0; i < hits; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"_index\":\"events\",\"_id\":\"").append(i).append("\",\"_score\":1.0,\"_source\":")
+                        .append(om.writeValueAsString(sampleEvent(i))).append('}');
+            }
+            return sb.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static ElkEvent sampleEvent(int i) {
+        return new ElkEvent(Integer.toString(i),
+                "Building Scalable Micro-services with Spring Boot",
+                i % 2 == 0 ? EventType.WORKSHOP : EventType.TECH_TALK,
+                Instant.parse("2024-07-05T13:00:00Z").plusSeconds(i * 3600L),
+                "Tech-Hub – Room A, Berlin",
+                "Hands-on Spring Boot workshop",
+                List.of("DDD", "API Gateway", "Observability", "CI/CD"));
+    }
+}
@@ -0,0 +1,48 @@
+package demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of a single {@link ElkEvent} with the service's mapper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper mapper;
+    private ElkEvent event;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = EventService.objectMapper();
+        event = FakeElasticsearch.sampleEvent(1);
+        json = mapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public ElkEvent deserialize() throws Exception {
+        return mapper.readValue(json, ElkEvent.class);
+    }
+}
@@ -0,0 +1,71 @@
+package demo;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-thread cost of the controller's logging under the default
+ * configuration (sync file + console) and the prod profile (async, JSON).
+ * Sampled, so the report includes the latency percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    @Param({"log4j2.xml", "log4j2-prod.xml"})
+    public String config;
+
+    private Logger log;
+
+    @Setup(Level.Trial)
+    public void configure() throws Exception {
+        if (config.equals("log4j2-prod.xml")) {
+            // what Log4jPropertiesPostProcessor does for the prod profile
+            Properties prod = new Properties();
+            try (InputStream in = LoggingBenchmark.class.getResourceAsStream("/application-prod.properties")) {
+                prod.load(in);
+            }
+            prod.stringPropertyNames().stream().filter(k -> k.startsWith(Log4jPropertiesPostProcessor.PREFIX))
+                    .forEach(k -> System.setProperty(k, prod.getProperty(k)));
+        }
+        LoggerContext ctx = (LoggerContext) LogManager.getContext(false);
+        ctx.setConfigLocation(LoggingBenchmark.class.getResource("/" + config).toURI());
+        log = ctx.getLogger(EventController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        LogManager.shutdown();
+    }
+
+    @Benchmark
+    public void requestLogLine() {
+        String id = LogContext.begin(null);
+        log.info("Stored event {}", id);
+        LogContext.end();
+    }
+}
@@ -0,0 +1,82 @@
+package demo;
+
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The response-reading loop of {@link LowLevelReadExample} (one char per
+ * read() into a StringBuilder) against reading the body in bulk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LowLevelReadBenchmark {
+
+    @Param({"10", "1000"})
+    public int hits;
+
+    private FakeElasticsearch fake;
+    private RestClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        fake = new FakeElasticsearch(hits);
+        client = fake.restClient();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        fake.close();
+    }
+
+    private Response search() throws Exception {
+        Request req = new Request("GET", "/events/_search");
+        req.setJsonEntity("{\"query\":{\"match_all\":{}}}");
+        return client.performRequest(req);
+    }
+
+    @Benchmark
+    public String charByChar() throws Exception {
+        Response rsp = search();
+        StringBuilder textBuilder = new StringBuilder();
+        try (Reader reader = new BufferedReader(new InputStreamReader
+                (rsp.getEntity().getContent(), StandardCharsets.UTF_8))) {
+            int c = 0;
+            while ((c = reader.read()) != -1) {
+                textBuilder.append((char) c);
+            }
+        }
+        return textBuilder.toString();
+    }
+
+    @Benchmark
+    public byte[] readAllBytes() throws Exception {
+        try (InputStream in = search().getEntity().getContent()) {
+            return in.readAllBytes();
+        }
+    }
+}
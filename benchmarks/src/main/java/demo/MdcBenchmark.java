@@ -0,0 +1,60 @@
+package demo;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request log context setup: the former EventController.mdc() against
+ * {@link LogContext} as used by {@link LogContextFilter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MdcBenchmark {
+
+    @Benchmark
+    public void legacyMdc() {
+        ThreadContext.clearAll();
+        ThreadContext.put("message_id", "MSG-" + System.currentTimeMillis());
+        ThreadContext.put("uuid", UUID.randomUUID().toString().replace("-", ""));
+        ThreadContext.put("app_name", "event-service");
+        ThreadContext.put("app_version", "1.0.0-SNAPSHOT");
+        try {
+            ThreadContext.put("hostname", InetAddress.getLocalHost().getHostName());
+        } catch (Exception e) {
+            ThreadContext.put("hostname", "unknown");
+        }
+        ThreadContext.put("process_id",
+                ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+    }
+
+    @Benchmark
+    public void logContext() {
+        LogContext.begin(null);
+        LogContext.end();
+    }
+
+    @Benchmark
+    public void logContextWithIncomingId() {
+        LogContext.begin("4bf92f3577b34da6a3ce929d0e0e4736");
+        LogContext.end();
+    }
+}
@@ -0,0 +1,84 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.RestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A /query/* reply end to end against the fake cluster: the bound path (search into
+ * ElkEvents, then write them out with Jackson as Spring MVC does) against
+ * events.api.passthrough copying each _source from the response into the reply.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PassthroughBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int hits;
+
+    private FakeElasticsearch fake;
+    private ElasticsearchClient es;
+    private RestClient rest;
+    private RawEvents raw;
+    private SearchRequest search;
+    private ObjectMapper json;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        fake = new FakeElasticsearch(hits);
+        es = fake.client();
+        rest = fake.restClient();
+        raw = new RawEvents(rest, new JacksonJsonpMapper(EventService.objectMapper()),
+                AdaptiveLimit.unbounded("read"), null, "events", false);
+        search = SearchRequest.of(s -> s.index("events").query(EventQuery.all().toQuery())
+                .trackTotalHits(t -> t.enabled(false)));
+        json = EventService.objectMapper();
+        out = new ByteArrayOutputStream(fake.searchResponse().length);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        es.close();
+        rest.close();
+        fake.close();
+    }
+
+    @Benchmark
+    public int bound() throws Exception {
+        out.reset();
+        List<ElkEvent> events = es.search(search, ElkEvent.class).hits().hits().stream().map(Hit::source).toList();
+        json.writeValue(out, events);
+        return out.size();
+    }
+
+    @Benchmark
+    public int passthrough() throws Exception {
+        out.reset();
+        raw.search(search).get().writeTo(out);
+        return out.size();
+    }
+}
@@ -0,0 +1,75 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import jakarta.json.stream.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventService.search(): decoding a search response and mapping Hit::source,
+ * on its own and as a full round trip to the fake cluster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int hits;
+
+    private JsonpMapper mapper;
+    private JsonpDeserializer<SearchResponse<ElkEvent>> deserializer;
+    private byte[] response;
+    private FakeElasticsearch fake;
+    private ElasticsearchClient es;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new JacksonJsonpMapper(EventService.objectMapper());
+        deserializer = SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(ElkEvent.class));
+        fake = new FakeElasticsearch(hits);
+        response = fake.searchResponse();
+        es = fake.client();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        es.close();
+        fake.close();
+    }
+
+    @Benchmark
+    public List<ElkEvent> mapHits() {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(response))) {
+            return deserializer.deserialize(parser, mapper).hits().hits().stream().map(Hit::source).toList();
+        }
+    }
+
+    @Benchmark
+    public List<ElkEvent> searchRoundTrip() throws Exception {
+        return es.search(s -> s.index("events").query(EventQuery.all().toQuery()), ElkEvent.class)
+                .hits().hits().stream().map(Hit::source).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the whole application until the context is refreshed, with the index
+ * bootstrap inline or in the background, against a fake cluster {@code latencyMs} away.
+ * One start per fresh JVM; pass e.g. {@code -jvmArgsAppend -XX:SharedArchiveFile=...}
+ * to compare with a CDS archive.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"true", "false"})
+    public boolean asyncBootstrap;
+
+    @Param({"0", "50"})
+    public long latencyMs;
+
+    private FakeElasticsearch fake;
+
+    @Setup
+    public void setup() throws Exception {
+        fake = new FakeElasticsearch(0).latency(latencyMs);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fake.close();
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0",
+                        "events.client.nodes=" + fake.host().toURI(),
+                        "events.startup.async-bootstrap=" + asyncBootstrap)
+                .run();
+        context.close();
+        return context;
+    }
+}
@@ -0,0 +1,108 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonpDeserializer;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import jakarta.json.stream.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * events.client.format: encoding a bulk body and decoding a search response in JSON,
+ * SMILE and CBOR, on their own and as round trips to the fake cluster. Setup prints the
+ * bytes each format puts on the wire for both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public ClientProperties.Format format;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private JacksonJsonpMapper mapper;
+    private JsonpDeserializer<SearchResponse<ElkEvent>> deserializer;
+    private BulkRequest bulk;
+    private byte[] response;
+    private FakeElasticsearch fake;
+    private ElasticsearchClient es;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = WireFormatTransport.mapper(new JacksonJsonpMapper(EventService.objectMapper()), format);
+        deserializer = SearchResponse.createSearchResponseDeserializer(JsonpDeserializer.of(ElkEvent.class));
+        List<BulkOperation> ops = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ElkEvent ev = FakeElasticsearch.sampleEvent(i);
+            ops.add(BulkOperation.of(o -> o.index(x -> x.index("events").id(ev.id()).document(ev))));
+        }
+        bulk = BulkRequest.of(b -> b.operations(ops));
+        fake = new FakeElasticsearch(size);
+        response = fake.searchResponse(format);
+        es = fake.client(format);
+        System.out.printf("%n%s wire bytes: bulk of %d = %d, search response of %d = %d%n",
+                format, size, encodeBulk(), size, response.length);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        es.close();
+        fake.close();
+    }
+
+    /** Serializes every bulk line the way the transport does; returns the body size. */
+    @Benchmark
+    public long encodeBulk() {
+        long bytes = 0;
+        for (Iterator<?> lines = bulk._serializables(); lines.hasNext(); ) {
+            bytes += BinaryData.of(lines.next(), mapper).size() + 1;
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public List<ElkEvent> decodeSearch() {
+        try (JsonParser parser = mapper.jsonProvider().createParser(new ByteArrayInputStream(response))) {
+            return deserializer.deserialize(parser, mapper).hits().hits().stream().map(Hit::source).toList();
+        }
+    }
+
+    @Benchmark
+    public BulkResponse bulkRoundTrip() throws Exception {
+        return es.bulk(bulk);
+    }
+
+    @Benchmark
+    public List<ElkEvent> searchRoundTrip() throws Exception {
+        return es.search(s -> s.index("events").query(EventQuery.all().toQuery()), ElkEvent.class)
+                .hits().hits().stream().map(Hit::source).toList();
+    }
+}
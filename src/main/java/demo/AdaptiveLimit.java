@@ -0,0 +1,117 @@
+package demo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that follows the round trips it sees. Each sample is compared with
+ * a slow moving average of past ones: while it stays within {@code rttTolerance} of that
+ * average the limit creeps up by about its square root, and once requests start queueing
+ * on the cluster the ratio drops below one and pulls the limit down with it. A 429, 503,
+ * 504 or timeout cuts the limit by {@code backoffRatio} at once.
+ *
+ * Samples taken while less than half the limit was in use say nothing about capacity and
+ * only feed the average.
+ */
+public class AdaptiveLimit {
+
+    /** Weight of one sample in the long-term average, about a 500 sample window. */
+    private static final double LONG_WINDOW = 2.0 / 501;
+
+    private final String name;
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final double smoothing;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveLimit(String name, int initial, int max, LimitProperties props) {
+        this(name, initial, props.min(), max, props.rttTolerance(), props.backoffRatio(), props.smoothing());
+    }
+
+    private AdaptiveLimit(String name, int initial, int min, int max,
+                          double tolerance, double backoffRatio, double smoothing) {
+        this.name = name;
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.smoothing = smoothing;
+        this.limit = Math.max(min, Math.min(initial, max));
+    }
+
+    /** A limit that never rejects, for when admission control is off. */
+    public static AdaptiveLimit unbounded(String name) {
+        return new AdaptiveLimit(name, Integer.MAX_VALUE, 1, Integer.MAX_VALUE, 1, 1, 0);
+    }
+
+    /** Takes a slot, or counts a rejection and returns false when all are in use. */
+    public boolean tryAcquire() {
+        while (true) {
+            int n = inflight.get();
+            if (n >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Like {@link #tryAcquire()} but throws the 503 the API answers with. */
+    public void acquire() throws OverloadedException {
+        if (!tryAcquire()) {
+            throw new OverloadedException("Too many concurrent " + name + "s to Elasticsearch");
+        }
+    }
+
+    /** Gives the slot back with how long its request took and whether the cluster pushed back. */
+    public void release(long rttNanos, boolean dropped) {
+        int n = inflight.getAndDecrement();
+        update(rttNanos, dropped, n);
+    }
+
+    private synchronized void update(long rttNanos, boolean dropped, int inUse) {
+        if (dropped) {
+            limit = Math.max(min, limit * backoffRatio);
+            return;
+        }
+        longRtt = longRtt == 0 ? rttNanos : longRtt + (rttNanos - longRtt) * LONG_WINDOW;
+        if (inUse < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / Math.max(rttNanos, 1)));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(min, Math.min(max, limit * (1 - smoothing) + estimate * smoothing));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("events.limit", this, AdaptiveLimit::limit).tag("kind", name)
+                .description("Requests allowed in flight to Elasticsearch").register(registry);
+        Gauge.builder("events.limit.inflight", this, AdaptiveLimit::inflight).tag("kind", name)
+                .description("Requests in flight to Elasticsearch").register(registry);
+        FunctionCounter.builder("events.limit.rejected", rejected, LongAdder::sum).tag("kind", name)
+                .description("Requests answered 503 without reaching Elasticsearch").register(registry);
+    }
+}
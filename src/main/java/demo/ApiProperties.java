@@ -0,0 +1,26 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * How the REST endpoints wait for Elasticsearch.
+ *
+ * @param mode BLOCKING parks the servlet thread until the result is there
+ *             (pair with spring.threads.virtual.enabled=true to park virtual
+ *             threads instead); ASYNC returns a CompletableFuture and frees the
+ *             servlet thread while the request is in flight
+ * @param passthrough answer /get/{id} and the plain /query/* searches by copying each
+ *                    stored _source straight from the Elasticsearch response into the
+ *                    reply. Fresh query cache entries, and in journal mode event cache
+ *                    entries, are still served; only misses take the raw path, and
+ *                    what it reads is not cached. Searches with ?fields= are not
+ *                    passed through
+ */
+@ConfigurationProperties("events.api")
+public record ApiProperties(
+        @DefaultValue("blocking") Mode mode,
+        @DefaultValue("false") boolean passthrough
+) {
+    public enum Mode { BLOCKING, ASYNC }
+}
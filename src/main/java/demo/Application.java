@@ -2,8 +2,14 @@ package demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.elasticsearch.ElasticsearchRestClientAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
-@SpringBootApplication
+// EventService builds its own clients; Boot's would be a second, unused connection pool
+@SpringBootApplication(exclude = {ElasticsearchRestClientAutoConfiguration.class,
+        ElasticsearchClientAutoConfiguration.class})
+@ConfigurationPropertiesScan
 public class Application {
 
     public static void main(String[] args) {
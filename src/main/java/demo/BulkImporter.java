@@ -0,0 +1,218 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams NDJSON events from an input stream into bulk requests. Events are read
+ * straight off the body by a {@link MappingIterator}, no line is held longer than
+ * {@code maxDocument} and the body is never buffered as a whole; the ingester
+ * blocks the reader once {@code maxInFlight} bulks are outstanding. A line that
+ * is not an event is counted as failed and the import goes on with the next one.
+ */
+public class BulkImporter {
+
+    private static final int MAX_ERRORS = 10;
+
+    private final ElasticsearchAsyncClient es;
+    private final ImportProperties props;
+    private final ObjectReader reader;
+
+    public BulkImporter(ElasticsearchAsyncClient es, ImportProperties props) {
+        this.es = es;
+        this.props = props;
+        this.reader = EventService.objectMapper().readerFor(ElkEvent.class);
+    }
+
+    public ImportSummary run(InputStream ndjson, String index) throws IOException {
+        long start = System.nanoTime();
+        Counts counts = new Counts();
+        Lines lines = new Lines(ndjson, props.maxDocument().toBytes());
+        long read = 0;
+
+        try (BulkIngester<Void> ingester = BulkIngester.of(b -> b
+                     .client(es)
+                     .maxOperations(props.maxOperations())
+                     .maxSize(props.maxBytes().toBytes())
+                     .maxConcurrentRequests(props.maxInFlight())
+                     .backoffPolicy(new JitteredBackoff(props.initialBackoff().toMillis(), props.retries()))
+                     .listener(counts))) {
+            // after a bad line the parser is in no state to go on: the rest of the line is
+            // skipped and a fresh parser picks up at the next one
+            for (boolean more = true; more; lines.skipLine()) {
+                try (JsonParser parser = reader.createParser(lines)) {
+                    MappingIterator<ElkEvent> events = reader.readValues(parser);
+                    while (events.hasNextValue()) {
+                        read++;
+                        lines.held = true;
+                        ElkEvent ev = events.nextValue();
+                        lines.held = false;
+                        String id = ev.id() == null ? UUID.randomUUID().toString() : ev.id();
+                        ingester.add(op -> op.index(i -> i.index(index).id(id).document(ev)));
+                    }
+                    more = false;
+                } catch (JsonProcessingException | BadLineException e) {
+                    if (!lines.held) {
+                        read++;                     // failed before an event even started
+                    }
+                    counts.failed.incrementAndGet();
+                    counts.error("line " + lines.number + ": "
+                            + (e instanceof JsonProcessingException j ? j.getOriginalMessage() : e.getMessage()));
+                }
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long indexed = counts.indexed.get();
+        return new ImportSummary(read, indexed, counts.failed.get(), millis,
+                millis == 0 ? indexed : indexed * 1000.0 / millis, List.copyOf(counts.errors));
+    }
+
+    /**
+     * The body as the parser sees it: no more than one line per read, and while
+     * {@link #held} nothing past the end of the current line, so an event cut short
+     * fails on its own line instead of running into the next one.
+     */
+    private static final class Lines extends InputStream {
+
+        private final InputStream in;
+        private final long maxLine;
+        private final byte[] buf = new byte[8192];
+        private int pos;
+        private int limit;
+        /** Line of the last byte handed out, from 1. */
+        long number;
+        private long length;
+        private boolean ended = true;
+        /** An event is being read; the line may not end before it does. */
+        boolean held;
+
+        Lines(InputStream in, long maxLine) {
+            this.in = in;
+            this.maxLine = maxLine;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ended && held) {
+                throw new BadLineException("event does not end on its line");
+            }
+            if (!fill()) {
+                return -1;
+            }
+            if (ended) {
+                number++;
+                length = 0;
+                ended = false;
+            }
+            int n = Math.min(len, limit - pos);
+            for (int i = 0; i < n; i++) {
+                if (buf[pos + i] == '\n') {
+                    n = i + 1;
+                    ended = true;
+                    break;
+                }
+            }
+            length += n;
+            if (length > maxLine) {
+                throw new BadLineException("line longer than " + maxLine + " bytes");
+            }
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /** Drops what is left of the current line. */
+        void skipLine() throws IOException {
+            held = false;
+            while (!ended && fill()) {
+                int i = pos;
+                while (i < limit && buf[i] != '\n') {
+                    i++;
+                }
+                ended = i < limit;
+                pos = ended ? i + 1 : limit;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            while (pos == limit) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    return false;
+                }
+                pos = 0;
+                limit = n;
+            }
+            return true;
+        }
+    }
+
+    private static final class BadLineException extends IOException {
+
+        BadLineException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Counts implements BulkListener<Void> {
+
+        final AtomicLong indexed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<Void> contexts) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<Void> contexts, BulkResponse response) {
+            for (BulkResponseItem item : response.items()) {
+                if (item.error() == null) {
+                    indexed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                    error(item.id() + ": [" + item.status() + "] " + item.error().reason());
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<Void> contexts, Throwable failure) {
+            failed.addAndGet(request.operations().size());
+            error("bulk of " + request.operations().size() + ": " + failure.getMessage());
+        }
+
+        void error(String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+    }
+}
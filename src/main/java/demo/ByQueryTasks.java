@@ -0,0 +1,177 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Script;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.TaskInfo;
+import co.elastic.clients.json.JsonData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Delete- and update-by-query run as Elasticsearch tasks: {@code wait_for_completion=false},
+ * one slice per shard ({@code slices=auto}), version conflicts counted rather than aborting,
+ * and an optional requests-per-second throttle. Matching documents never leave the cluster;
+ * callers get a task id to poll or cancel.
+ * <p>
+ * Only tasks started here can be polled or cancelled, which {@link #owns} tells; the ids are
+ * kept in memory for a day, so a restart forgets them. Each task is also watched in the
+ * background and {@code onCompleted} gets its id once it is done, whether or not anybody polls.
+ */
+public class ByQueryTasks implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(ByQueryTasks.class);
+
+    /** Sets every entry of {@code params.set} on the matched documents. */
+    private static final String SET_FIELDS =
+            "for (e in params.set.entrySet()) { ctx._source[e.getKey()] = e.getValue() }";
+
+    private static final Duration WATCH_EVERY = Duration.ofSeconds(2);
+
+    private final ElasticsearchAsyncClient es;
+    private final Consumer<String> onCompleted;
+    private final long watchEvery;
+    private final Cache<String, Boolean> started = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofDays(1))
+            .maximumSize(10_000)
+            .build();
+    private final ScheduledExecutorService watcher;
+
+    public ByQueryTasks(ElasticsearchAsyncClient es, Consumer<String> onCompleted) {
+        this(es, onCompleted, WATCH_EVERY);
+    }
+
+    ByQueryTasks(ElasticsearchAsyncClient es, Consumer<String> onCompleted, Duration watchEvery) {
+        this.es = es;
+        this.onCompleted = onCompleted;
+        this.watchEvery = watchEvery.toMillis();
+        this.watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "by-query-watch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Whether {@code taskId} is a by-query task started by this service. */
+    public boolean owns(String taskId) {
+        return started.getIfPresent(taskId) != null;
+    }
+
+    /** Starts deleting what {@code query} matches in {@code indices}; null {@code rps} is unthrottled. */
+    public CompletableFuture<String> delete(List<String> indices, EventQuery query, Float rps) {
+        return es.deleteByQuery(d -> d
+                        .index(indices)
+                        .query(query.toQuery())
+                        .slices(s -> s.computed(SlicesCalculation.Auto))
+                        .conflicts(Conflicts.Proceed)
+                        .requestsPerSecond(rps)
+                        .refresh(true)
+                        .waitForCompletion(false))
+                .thenApply(DeleteByQueryResponse::task)
+                .thenApply(this::watch);
+    }
+
+    /**
+     * Starts setting {@code fields} on what {@code query} matches in {@code indices}.
+     *
+     * @throws IllegalArgumentException if a key is not an event field, or is the id
+     */
+    public CompletableFuture<String> update(List<String> indices, EventQuery query, Map<String, Object> fields,
+                                            Float rps) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("No fields to set");
+        }
+        for (String f : fields.keySet()) {
+            if (!EventQuery.FIELDS.contains(f) || f.equals("id")) {
+                throw new IllegalArgumentException("Cannot set '" + f + "'");
+            }
+        }
+        Script script = Script.of(s -> s
+                .source(src -> src.scriptString(SET_FIELDS))
+                .params("set", JsonData.of(fields)));
+        return es.updateByQuery(u -> u
+                        .index(indices)
+                        .query(query.toQuery())
+                        .script(script)
+                        .slices(s -> s.computed(SlicesCalculation.Auto))
+                        .conflicts(Conflicts.Proceed)
+                        .requestsPerSecond(rps)
+                        .refresh(true)
+                        .waitForCompletion(false))
+                .thenApply(UpdateByQueryResponse::task)
+                .thenApply(this::watch);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<TaskStatus> status(String taskId) {
+        return es.tasks().get(g -> g.taskId(taskId)).thenApply((GetTasksResponse r) -> {
+            TaskInfo t = r.task();
+            return new TaskStatus(
+                    taskId,
+                    t.action(),
+                    r.completed(),
+                    t.cancelled(),
+                    TimeUnit.NANOSECONDS.toMillis(t.runningTimeInNanos()),
+                    t.status() != null ? t.status().to(Map.class) : null,
+                    r.response() != null ? r.response().to(Map.class) : null,
+                    r.error() != null ? r.error().type() + ": " + r.error().reason() : null);
+        });
+    }
+
+    /** Cancels the task and its slices; documents already processed stay deleted / updated. */
+    public CompletableFuture<Void> cancel(String taskId) {
+        return es.tasks().cancel(c -> c.taskId(taskId)).thenApply(r -> null);
+    }
+
+    private String watch(String taskId) {
+        started.put(taskId, Boolean.TRUE);
+        schedule(taskId);
+        return taskId;
+    }
+
+    private void schedule(String taskId) {
+        try {
+            watcher.schedule(() -> check(taskId), watchEvery, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+    }
+
+    /** Polls until the task is done; a task the cluster no longer knows is taken as done too. */
+    private void check(String taskId) {
+        status(taskId).whenComplete((t, e) -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (t != null && t.completed()) {
+                onCompleted.accept(taskId);
+            } else if (cause instanceof ElasticsearchException ee && ee.status() == 404) {
+                LOG.warn("By-query task {} disappeared before it was seen completed", taskId);
+                onCompleted.accept(taskId);
+            } else {
+                schedule(taskId);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        watcher.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Near cache in front of GET /get/{id}.
+ *
+ * @param maxSize     entries kept; 0 disables caching
+ * @param ttl         lifetime of a cached event
+ * @param negativeTtl lifetime of a cached "not found"
+ */
+@ConfigurationProperties("events.cache")
+public record CacheProperties(
+        @DefaultValue("10000") long     maxSize,
+        @DefaultValue("5m")    Duration ttl,
+        @DefaultValue("5s")    Duration negativeTtl
+) { }
@@ -0,0 +1,146 @@
+package demo;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.instrumentation.Instrumentation;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.sniff.ElasticsearchNodesSniffer;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Builds the low-level client shared by the service and the command-line examples:
+ * several seed nodes, a sized connection pool, gzip bodies, optional sniffing and
+ * latency-aware node selection. The typed transports on top of it speak the configured
+ * wire format.
+ * <p>
+ * Building it does not wait on Elasticsearch: the pool connects on the first request
+ * and the sniffer takes its first sample on its own thread. So the service creates it
+ * eagerly rather than lazily, and a slow or missing cluster only delays the index
+ * bootstrap, which runs in the background.
+ */
+public class ClientFactory implements Closeable {
+
+    private final RestClient rest;
+    private final Sniffer sniffer;
+    private final LatencyAwareNodeSelector selector;
+    private final PoolingNHttpClientConnectionManager pool;
+    private final ClientProperties.Format format;
+
+    public ClientFactory(ClientProperties props) throws IOException {
+        format = props.format();
+        HttpHost[] hosts = props.nodes().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+        BasicCredentialsProvider cp = new BasicCredentialsProvider();
+        cp.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(props.username(), props.password()));
+        long keepAlive = props.keepAlive().toMillis();
+        selector = new LatencyAwareNodeSelector(props.slowNodeFactor(), props.ejectFor().toNanos(),
+                props.minSamples(), props.minLiveNodes());
+        // our own pool rather than the builder's so its stats can be exported
+        pool = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(IOReactorConfig.custom().setSoKeepAlive(true).build()),
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                        .build());
+        pool.setDefaultMaxPerRoute(props.maxConnPerRoute());
+        pool.setMaxTotal(props.maxConnTotal());
+
+        boolean sniffing = !props.sniffInterval().isZero();
+        SniffOnFailureListener onFailure = new SniffOnFailureListener();
+        RestClientBuilder builder = RestClient.builder(hosts)
+                .setNodeSelector(selector)
+                .setCompressionEnabled(props.compression())
+                .setRequestConfigCallback(r -> r
+                        .setConnectTimeout((int) props.connectTimeout().toMillis())
+                        .setSocketTimeout((int) props.socketTimeout().toMillis()))
+                .setHttpClientConfigCallback(h -> h
+                        .setDefaultCredentialsProvider(cp)
+                        .setConnectionManager(pool)
+                        .setKeepAliveStrategy((response, context) -> keepAlive)
+                        .addInterceptorLast(selector.requestInterceptor())
+                        .addInterceptorLast(selector.responseInterceptor()));
+        if (sniffing) {
+            builder.setFailureListener(onFailure);
+        }
+        rest = builder.build();
+
+        if (sniffing) {
+            ElasticsearchNodesSniffer.Scheme scheme = "https".equals(hosts[0].getSchemeName())
+                    ? ElasticsearchNodesSniffer.Scheme.HTTPS
+                    : ElasticsearchNodesSniffer.Scheme.HTTP;
+            sniffer = Sniffer.builder(rest)
+                    .setSniffIntervalMillis((int) props.sniffInterval().toMillis())
+                    .setNodesSniffer(new ElasticsearchNodesSniffer(rest,
+                            ElasticsearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT, scheme))
+                    .build();
+            onFailure.setSniffer(sniffer);
+        } else {
+            sniffer = null;
+        }
+    }
+
+    /** Factory configured from {@code events.client.*} system properties and environment variables. */
+    public static ClientFactory fromEnvironment() throws IOException {
+        return new ClientFactory(Binder.get(new StandardEnvironment())
+                .bindOrCreate("events.client", ClientProperties.class));
+    }
+
+    public RestClient restClient() {
+        return rest;
+    }
+
+    public ElasticsearchTransport transport(JacksonJsonpMapper mapper) {
+        return transport(mapper, null);
+    }
+
+    /** JSON through the stock transport; SMILE or CBOR with {@code mapper}'s configuration otherwise. */
+    public ElasticsearchTransport transport(JacksonJsonpMapper mapper, Instrumentation instrumentation) {
+        return format == ClientProperties.Format.JSON
+                ? new RestClientTransport(rest, mapper, null, instrumentation)
+                : new WireFormatTransport(rest, format, mapper, instrumentation);
+    }
+
+    /** Registers gauges for the connection pool: leased, pending, available and max connections. */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("es.client.pool.leased", pool, p -> p.getTotalStats().getLeased())
+                .description("Connections in use").register(registry);
+        Gauge.builder("es.client.pool.pending", pool, p -> p.getTotalStats().getPending())
+                .description("Requests waiting for a connection").register(registry);
+        Gauge.builder("es.client.pool.available", pool, p -> p.getTotalStats().getAvailable())
+                .description("Idle connections kept alive").register(registry);
+        Gauge.builder("es.client.pool.max", pool, p -> p.getTotalStats().getMax())
+                .description("Pool capacity").register(registry);
+    }
+
+    public LatencyAwareNodeSelector selector() {
+        return selector;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (sniffer != null) {
+            sniffer.close();
+        }
+        rest.close();
+    }
+}
@@ -0,0 +1,48 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection to the Elasticsearch cluster.
+ *
+ * @param nodes           seed nodes, e.g. {@code http://es1:9200}
+ * @param username        basic-auth user
+ * @param password        basic-auth password
+ * @param maxConnPerRoute pooled connections per node
+ * @param maxConnTotal    pooled connections over all nodes
+ * @param keepAlive       how long an idle pooled connection is reused
+ * @param connectTimeout  TCP connect timeout
+ * @param socketTimeout   read timeout per request
+ * @param compression     gzip request bodies and accept gzip responses
+ * @param sniffInterval   how often the node list is refreshed from the cluster; 0 disables sniffing
+ * @param slowNodeFactor  nodes slower than this multiple of the fastest node's latency are ejected
+ * @param ejectFor        how long an ejected node is skipped before it is probed again
+ * @param minSamples      responses measured on a node before it can be the fastest or be ejected
+ * @param minLiveNodes    ejection never leaves fewer nodes than this in rotation
+ * @param format          body encoding of the typed client: JSON, or the binary SMILE / CBOR,
+ *                        which Elasticsearch also speaks; the low-level readers stay on JSON
+ */
+@ConfigurationProperties("events.client")
+public record ClientProperties(
+        @DefaultValue("http://localhost:9200") List<String> nodes,
+        @DefaultValue("elastic")               String       username,
+        @DefaultValue("changeme")              String       password,
+        @DefaultValue("32")                    int          maxConnPerRoute,
+        @DefaultValue("128")                   int          maxConnTotal,
+        @DefaultValue("30s")                   Duration     keepAlive,
+        @DefaultValue("1s")                    Duration     connectTimeout,
+        @DefaultValue("30s")                   Duration     socketTimeout,
+        @DefaultValue("true")                  boolean      compression,
+        @DefaultValue("0s")                    Duration     sniffInterval,
+        @DefaultValue("3.0")                   double       slowNodeFactor,
+        @DefaultValue("30s")                   Duration     ejectFor,
+        @DefaultValue("10")                    int          minSamples,
+        @DefaultValue("2")                     int          minLiveNodes,
+        @DefaultValue("json")                  Format       format
+) {
+    public enum Format { JSON, SMILE, CBOR }
+}
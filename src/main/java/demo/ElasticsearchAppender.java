@@ -0,0 +1,374 @@
+package demo;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginBuilderFactory;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Ships log events straight to a daily {@code <indexPrefix>yyyy.MM.dd} index as bulk
+ * NDJSON, in place of the RollingFile → Filebeat → Logstash grok path. Each event is
+ * rendered by the layout (EventEcsLayout.json, which carries the context fields) into an
+ * off-heap ring buffer of {@code bufferSize} bytes; a background thread sends a bulk
+ * whenever {@code batchSize} bytes are buffered or {@code flushInterval} has passed.
+ *
+ * A full buffer drops the event. A bulk that fails as a whole (cluster down, 429, 5xx)
+ * is appended to {@code spillFile}, ready for a later {@code POST _bulk}, while the
+ * file stays within {@code maxSpillSize}; otherwise it is dropped. Counters per appender
+ * name are handed to {@link #whenCounted} listeners and exported as {@code events.logs.*}.
+ */
+@Plugin(name = "Elasticsearch", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class ElasticsearchAppender extends AbstractAppender {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final Map<String, Counters> COUNTERS = new LinkedHashMap<>();
+    private static final List<BiConsumer<String, Counters>> LISTENERS = new ArrayList<>();
+
+    /** What happened to the events of one appender, kept across reconfigurations. */
+    public static final class Counters {
+        public final LongAdder shipped = new LongAdder();
+        public final LongAdder bufferFull = new LongAdder();
+        public final LongAdder rejected = new LongAdder();
+        public final LongAdder spilled = new LongAdder();
+        public final LongAdder lost = new LongAdder();
+        public final LongAdder bulks = new LongAdder();
+        public final LongAdder bulkFailures = new LongAdder();
+    }
+
+    private final Ring ring;
+    private final URI bulkUri;
+    private final String authorization;
+    private final String indexPrefix;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Duration timeout;
+    private final Path spillFile;
+    private final long maxSpillSize;
+    private final Counters counters;
+    private final HttpClient http;
+    private final Thread shipper;
+    private volatile DayAction action = new DayAction(-1, null);
+
+    /** The bulk action line of one UTC day, swapped as a whole when the day changes. */
+    private record DayAction(long day, byte[] line) { }
+
+    private ElasticsearchAppender(Builder b) {
+        super(b.getName(), b.getFilter(), b.getOrCreateLayout(), b.isIgnoreExceptions(), b.getPropertyArray());
+        this.ring = new Ring(b.bufferSize);
+        this.bulkUri = URI.create(b.url.replaceAll("/+$", "") + "/_bulk?filter_path=errors,items.*.error.type");
+        this.authorization = b.username == null ? null : "Basic " + Base64.getEncoder()
+                .encodeToString((b.username + ":" + b.password).getBytes(StandardCharsets.UTF_8));
+        this.indexPrefix = b.indexPrefix;
+        this.batchSize = b.batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(b.flushInterval);
+        this.timeout = Duration.ofMillis(b.timeout);
+        this.spillFile = b.spillFile == null || b.spillFile.isBlank() ? null : Path.of(b.spillFile);
+        this.maxSpillSize = b.maxSpillSize;
+        this.counters = counters(b.getName());
+        this.http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+        this.shipper = new Thread(this::ship, "log-shipper-" + b.getName());
+        shipper.setDaemon(true);
+    }
+
+    @PluginBuilderFactory
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Calls {@code listener} with the counters of every Elasticsearch appender created so
+     * far, by name, and again for each one created later, e.g. by a reconfiguration.
+     */
+    public static synchronized void whenCounted(BiConsumer<String, Counters> listener) {
+        LISTENERS.add(listener);
+        COUNTERS.forEach(listener);
+    }
+
+    private static synchronized Counters counters(String name) {
+        Counters counters = COUNTERS.get(name);
+        if (counters == null) {
+            counters = new Counters();
+            COUNTERS.put(name, counters);
+            for (BiConsumer<String, Counters> listener : LISTENERS) {
+                listener.accept(name, counters);
+            }
+        }
+        return counters;
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        shipper.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit unit) {
+        setStopping();
+        shipper.interrupt();
+        try {
+            shipper.join(unit.toMillis(timeout) > 0 ? unit.toMillis(timeout) : this.timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        setStopped();
+        return true;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        byte[] doc = getLayout().toByteArray(event);
+        int end = doc.length;
+        while (end > 0 && (doc[end - 1] == '\n' || doc[end - 1] == '\r')) {
+            end--;
+        }
+        if (!ring.offer(action(event.getTimeMillis()), doc, end, batchSize)) {
+            counters.bufferFull.increment();
+        }
+    }
+
+    /** Bulk action line for the day of {@code millis}; rebuilt once a day. */
+    private byte[] action(long millis) {
+        long day = Math.floorDiv(millis, 86_400_000L);
+        DayAction current = action;
+        if (current.day() != day) {
+            String index = indexPrefix + DAY.format(LocalDate.ofEpochDay(day).atStartOfDay(ZoneOffset.UTC));
+            current = new DayAction(day, ("{\"create\":{\"_index\":\"" + index + "\"}}\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            action = current;
+        }
+        return current.line();
+    }
+
+    private void ship() {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(batchSize + 64 * 1024);
+        boolean running = true;
+        while (running) {
+            try {
+                ring.await(batchSize, flushIntervalNanos);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            int events;
+            while ((events = ring.drainTo(batch, batchSize)) > 0) {
+                send(batch.toByteArray(), events);
+                batch.reset();
+            }
+        }
+    }
+
+    private void send(byte[] body, int events) {
+        counters.bulks.increment();
+        HttpRequest.Builder request = HttpRequest.newBuilder(bulkUri)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        try {
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() >= 300) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            int failed = count(response.body(), "\"error\"");
+            counters.shipped.add(events - failed);
+            counters.rejected.add(failed);
+        } catch (IOException e) {
+            counters.bulkFailures.increment();
+            spillOrDrop(body, events, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            spillOrDrop(body, events, e);
+        }
+    }
+
+    private void spillOrDrop(byte[] body, int events, Exception cause) {
+        if (spillFile != null) {
+            try {
+                if (spill(spillFile, maxSpillSize, body)) {
+                    counters.spilled.add(events);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not spill {} log events to {}: {}", events, spillFile, e.toString());
+            }
+        }
+        counters.lost.add(events);
+        LOGGER.warn("Dropped {} log events, bulk to {} failed: {}", events, bulkUri.getHost(), cause.toString());
+    }
+
+    /** Appends {@code body} to {@code file} unless that would take it past {@code maxSize} bytes. */
+    static boolean spill(Path file, long maxSize, byte[] body) throws IOException {
+        long size = Files.exists(file) ? Files.size(file) : 0;
+        if (size + body.length > maxSize) {
+            return false;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (FileChannel ch = FileChannel.open(file, CREATE, WRITE, APPEND)) {
+            ch.write(ByteBuffer.wrap(body));
+        }
+        return true;
+    }
+
+    private static int count(String s, String needle) {
+        int n = 0;
+        for (int i = s.indexOf(needle); i >= 0; i = s.indexOf(needle, i + needle.length())) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Byte ring over a direct buffer holding {@code length, action line, document, '\n'}
+     * records; one producer lock, drained by the shipper thread.
+     */
+    static final class Ring {
+
+        private final ByteBuffer buf;
+        private final int capacity;
+        private static final byte[] NEWLINE = {'\n'};
+        private final byte[] scratch = new byte[8192];
+        private final byte[] length = new byte[Integer.BYTES];
+        private long head;
+        private long tail;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            this.buf = ByteBuffer.allocateDirect(capacity);
+        }
+
+        synchronized boolean offer(byte[] action, byte[] doc, int docLength, int wakeAt) {
+            int size = action.length + docLength + 1;
+            if (capacity - (head - tail) < Integer.BYTES + size) {
+                return false;
+            }
+            ByteBuffer.wrap(length).putInt(0, size);
+            long pos = put(head, length, Integer.BYTES);
+            pos = put(pos, action, action.length);
+            pos = put(pos, doc, docLength);
+            pos = put(pos, NEWLINE, 1);
+            head = pos;
+            if (head - tail >= wakeAt) {
+                notifyAll();
+            }
+            return true;
+        }
+
+        synchronized void await(int bytes, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            for (long left = nanos; head - tail < bytes && left > 0; left = deadline - System.nanoTime()) {
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+        }
+
+        /** Moves whole records, up to {@code maxBytes} (at least one), into {@code out}. */
+        synchronized int drainTo(ByteArrayOutputStream out, int maxBytes) {
+            int records = 0;
+            while (tail < head) {
+                long pos = get(tail, length, Integer.BYTES);
+                int size = ByteBuffer.wrap(length).getInt();
+                if (records > 0 && out.size() + size > maxBytes) {
+                    break;
+                }
+                for (int left = size; left > 0; ) {
+                    int n = Math.min(left, scratch.length);
+                    pos = get(pos, scratch, n);
+                    out.write(scratch, 0, n);
+                    left -= n;
+                }
+                tail = pos;
+                records++;
+            }
+            return records;
+        }
+
+        private long put(long pos, byte[] src, int length) {
+            int at = (int) (pos % capacity);
+            int first = Math.min(length, capacity - at);
+            buf.put(at, src, 0, first);
+            buf.put(0, src, first, length - first);
+            return pos + length;
+        }
+
+        private long get(long pos, byte[] dst, int length) {
+            int at = (int) (pos % capacity);
+            int first = Math.min(length, capacity - at);
+            buf.get(at, dst, 0, first);
+            buf.get(0, dst, first, length - first);
+            return pos + length;
+        }
+    }
+
+    public static final class Builder extends AbstractAppender.Builder<Builder>
+            implements org.apache.logging.log4j.core.util.Builder<ElasticsearchAppender> {
+
+        @PluginBuilderAttribute
+        @Required(message = "No url for the Elasticsearch appender")
+        private String url;
+
+        @PluginBuilderAttribute
+        private String username;
+
+        @PluginBuilderAttribute(sensitive = true)
+        private String password;
+
+        @PluginBuilderAttribute
+        private String indexPrefix = "event-service-logs-";
+
+        @PluginBuilderAttribute
+        private int bufferSize = 8 * 1024 * 1024;
+
+        @PluginBuilderAttribute
+        private int batchSize = 1024 * 1024;
+
+        @PluginBuilderAttribute
+        private long flushInterval = 1000;
+
+        @PluginBuilderAttribute
+        private long timeout = 10_000;
+
+        @PluginBuilderAttribute
+        private String spillFile;
+
+        @PluginBuilderAttribute
+        private long maxSpillSize = 100L * 1024 * 1024;
+
+        @Override
+        public ElasticsearchAppender build() {
+            return new ElasticsearchAppender(this);
+        }
+    }
+}
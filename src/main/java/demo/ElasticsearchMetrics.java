@@ -0,0 +1,168 @@
+package demo;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.http.TransportHttpClient;
+import co.elastic.clients.transport.instrumentation.Instrumentation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call made through the transport, tagged by endpoint id (index, get,
+ * search, bulk, indices.create, ...) and outcome. Bulk calls also record request
+ * size and bytes plus item failures by error type; searches record hits returned.
+ * Meters are looked up once per tag combination and cached, so the per-call cost
+ * is a map lookup and a few atomic adds. Calls made on the low-level client bypass
+ * the transport; their callers time them with {@link #record}.
+ */
+public class ElasticsearchMetrics implements Instrumentation {
+
+    private static final ThreadScope NO_SCOPE = () -> { };
+
+    private final MeterRegistry registry;
+    private final Duration[] slo;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> itemFailures = new ConcurrentHashMap<>();
+    private final DistributionSummary bulkOperations;
+    private final DistributionSummary bulkBytes;
+    private final DistributionSummary hits;
+
+    public ElasticsearchMetrics(MeterRegistry registry, MetricsProperties props) {
+        this.registry = registry;
+        this.slo = props.slo().toArray(Duration[]::new);
+        this.bulkOperations = DistributionSummary.builder("es.bulk.operations")
+                .description("Operations per bulk request")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bulkBytes = DistributionSummary.builder("es.bulk.bytes")
+                .description("Uncompressed bulk request body size")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.hits = DistributionSummary.builder("es.search.hits")
+                .description("Hits returned per search")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public <TRequest> Context newContext(TRequest request, Endpoint<TRequest, ?, ?> endpoint) {
+        String id = endpoint.id();
+        return new Call(id.startsWith("es/") ? id.substring(3) : id, request);
+    }
+
+    /**
+     * Records a low-level client call under the same {@code es.requests} timer, with
+     * {@code operation} named like the typed endpoint it stands in for. {@code status}
+     * is the HTTP status, or 0 when there was no response.
+     */
+    public void record(String operation, long nanos, int status, Throwable failure) {
+        timer(operation, outcome(status, failure)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String outcome(int status, Throwable failure) {
+        return failure == null ? "success"
+                : status >= 500 ? "server_error"
+                : status >= 400 ? "client_error"
+                : "error";
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + '|' + outcome, k -> Timer.builder("es.requests")
+                .description("Elasticsearch calls, from request encoding to decoded response")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(slo)
+                .register(registry));
+    }
+
+    private Counter itemFailure(String type) {
+        return itemFailures.computeIfAbsent(type, t -> Counter.builder("es.bulk.item.failures")
+                .description("Bulk items rejected by Elasticsearch")
+                .tag("type", t)
+                .register(registry));
+    }
+
+    private final class Call implements Context {
+
+        private final long start = System.nanoTime();
+        private final String operation;
+        private final Object request;
+        private int status;
+        private Throwable failure;
+        private boolean closed;
+
+        Call(String operation, Object request) {
+            this.operation = operation;
+            this.request = request;
+        }
+
+        @Override
+        public ThreadScope makeCurrent() {
+            return NO_SCOPE;
+        }
+
+        @Override
+        public void beforeSendingHttpRequest(TransportHttpClient.Request http, TransportOptions options) {
+            if (request instanceof BulkRequest bulk) {
+                bulkOperations.record(bulk.operations().size());
+                long bytes = 0;
+                if (http.body() != null) {
+                    for (ByteBuffer b : http.body()) {
+                        bytes += b.remaining();
+                    }
+                }
+                bulkBytes.record(bytes);
+            }
+        }
+
+        @Override
+        public void afterReceivingHttpResponse(TransportHttpClient.Response http) {
+            status = http.statusCode();
+        }
+
+        @Override
+        public <TResponse> void afterDecodingApiResponse(TResponse response) {
+            if (response instanceof BulkResponse bulk && bulk.errors()) {
+                for (BulkResponseItem item : bulk.items()) {
+                    if (item.error() != null) {
+                        itemFailure(item.error().type()).increment();
+                    }
+                }
+            } else if (response instanceof SearchResponse<?> search) {
+                hits.record(search.hits().hits().size());
+            }
+        }
+
+        @Override
+        public void recordException(Throwable e) {
+            failure = e;
+            if (e instanceof ElasticsearchException es) {
+                status = es.status();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            record(operation, System.nanoTime() - start, status, failure);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package demo;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache of events by id. Misses for the same id share one load,
+ * "not found" is cached for a shorter time than a hit. With a {@code maxSize} of 0
+ * every lookup goes to the loader and nothing is kept or shared.
+ */
+public class EventCache {
+
+    private final AsyncLoadingCache<String, Optional<ElkEvent>> cache;
+    private final AsyncCacheLoader<String, Optional<ElkEvent>> loader;
+    private final boolean enabled;
+
+    public EventCache(CacheProperties props, AsyncCacheLoader<String, Optional<ElkEvent>> loader) {
+        this.loader = loader;
+        this.enabled = props.maxSize() > 0;
+        long ttl = props.ttl().toNanos();
+        long negativeTtl = props.negativeTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.maxSize())
+                .expireAfter(new Expiry<String, Optional<ElkEvent>>() {
+                    @Override
+                    public long expireAfterCreate(String id, Optional<ElkEvent> ev, long now) {
+                        return ev.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Optional<ElkEvent> ev, long now, long remaining) {
+                        return expireAfterCreate(id, ev, now);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Optional<ElkEvent> ev, long now, long remaining) {
+                        return remaining;
+                    }
+                })
+                .recordStats()
+                .buildAsync(loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Optional<ElkEvent>> get(String id) {
+        if (!enabled) {
+            try {
+                return (CompletableFuture<Optional<ElkEvent>>) loader.asyncLoad(id, ForkJoinPool.commonPool());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return cache.get(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Optional<ElkEvent>>> getAll(Collection<String> ids) {
+        if (!enabled) {
+            try {
+                return (CompletableFuture<Map<String, Optional<ElkEvent>>>)
+                        loader.asyncLoadAll(Set.copyOf(ids), ForkJoinPool.commonPool());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return cache.getAll(ids);
+    }
+
+    /** The entry of {@code id} if there is one, loaded or loading; never loads it. */
+    public CompletableFuture<Optional<ElkEvent>> getIfPresent(String id) {
+        return enabled ? cache.getIfPresent(id) : null;
+    }
+
+    public void put(String id, ElkEvent ev) {
+        if (enabled) {
+            cache.put(id, CompletableFuture.completedFuture(Optional.of(ev)));
+        }
+    }
+
+    /** Caches the absence of {@code id}, for the negative TTL. */
+    public void putAbsent(String id) {
+        if (enabled) {
+            cache.put(id, CompletableFuture.completedFuture(Optional.empty()));
+        }
+    }
+
+    /**
+     * Replaces the entry of {@code id} with {@code change} applied to it, loading it first if
+     * need be. The new entry is in place at once, so reads and later changes wait for it.
+     */
+    public void update(String id, UnaryOperator<Optional<ElkEvent>> change) {
+        if (enabled) {
+            cache.put(id, cache.get(id).thenApply(change));
+        }
+    }
+
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "events.near");
+    }
+
+    public Stats stats() {
+        CacheStats s = cache.synchronous().stats();
+        return new Stats(cache.synchronous().estimatedSize(), s.hitCount(), s.missCount(), s.hitRate(),
+                s.evictionCount(), s.loadSuccessCount(), s.loadFailureCount(), s.averageLoadPenalty() / 1_000_000.0);
+    }
+
+    public record Stats(long size, long hits, long misses, double hitRate,
+                        long evictions, long loads, long loadFailures, double avgLoadMillis) { }
+}
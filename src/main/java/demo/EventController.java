@@ -1,111 +1,368 @@
 package demo;
 
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.ThreadContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.lang.management.ManagementFactory;
-import java.net.InetAddress;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 public class EventController {
 
     private static final Logger LOG = LogManager.getLogger(EventController.class);
     private final EventService svc;
+    private final ObjectMapper json;
+    private final boolean async;
+    private final boolean passthrough;
 
-    public EventController(EventService svc) {
+    public EventController(EventService svc, ObjectMapper json, ApiProperties api) {
         this.svc = svc;
+        this.json = json;
+        this.async = api.mode() == ApiProperties.Mode.ASYNC;
+        this.passthrough = api.passthrough();
     }
 
-    private static void mdc() {
-        ThreadContext.clearAll();
-        ThreadContext.put("message_id", "MSG-" + System.currentTimeMillis());
-        ThreadContext.put("uuid", UUID.randomUUID().toString().replace("-", ""));
-        ThreadContext.put("app_name", "event-service");
-        ThreadContext.put("app_version", "1.0.0-SNAPSHOT");
-        try {
-            ThreadContext.put("hostname", InetAddress.getLocalHost().getHostName());
-        } catch (Exception e) {
-            ThreadContext.put("hostname", "unknown");
-        }
-        ThreadContext.put("process_id",
-                ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
-    }
-
-
     @PostMapping("/bulk-init")
     public ResponseEntity<Void> bulkInit() throws Exception {
-        mdc();
         svc.bulkInit();
         LOG.info("Bulk initialised 5 events");
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Imports an NDJSON body (gzip when sent with Content-Encoding: gzip or ?gzip=true);
+     * {@code ?fast=true} pauses refreshes and replicas while it runs.
+     */
+    @PostMapping("/bulk-import")
+    public ImportSummary bulkImport(InputStream body,
+                                    @RequestHeader(value = "Content-Encoding", required = false) String encoding,
+                                    @RequestParam(defaultValue = "false") boolean gzip,
+                                    @RequestParam(defaultValue = "false") boolean fast) throws Exception {
+        InputStream in = gzip || "gzip".equalsIgnoreCase(encoding)
+                ? new GZIPInputStream(body, 64 * 1024)
+                : new BufferedInputStream(body, 64 * 1024);
+        ImportSummary summary = svc.importEvents(in, fast);
+        LOG.info("Imported {} of {} events ({} failed) in {} ms",
+                summary.indexed(), summary.read(), summary.failed(), summary.millis());
+        return summary;
+    }
+
+    @PostMapping("/export")
+    public ExportSummary export() throws Exception {
+        return svc.exportEvents();
+    }
+
     @PostMapping("/store")
-    public ResponseEntity<String> store(@RequestBody ElkEvent ev) throws Exception {
-        mdc();
-        String id = svc.store(ev);
-        LOG.info("Stored event {}", id);
-        return ResponseEntity.ok(id);
+    public Object store(@RequestBody ElkEvent ev) throws Exception {
+        return reply(svc.storeAsync(ev).thenApply(LogContext.propagate(id -> {
+            LOG.info("Stored event {}", id);
+            return ResponseEntity.ok(id);
+        })));
     }
 
     @GetMapping("/get/{id}")
-    public ResponseEntity<ElkEvent> get(@PathVariable String id) throws Exception {
-        mdc();
-        ElkEvent ev = svc.get(id);
-        LOG.info("Get event {}", id);
-        return ev == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(ev);
+    public Object get(@PathVariable String id) throws Exception {
+        if (passthrough) {
+            return reply(svc.getRawAsync(id).thenApply(LogContext.propagate(body -> {
+                LOG.info("Get event {}", id);
+                return body == null ? ResponseEntity.notFound().build() : raw(body);
+            })));
+        }
+        return reply(svc.getAsync(id).thenApply(LogContext.propagate(ev -> {
+            LOG.info("Get event {}", id);
+            return ev == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(ev);
+        })));
+    }
+
+    @PostMapping("/get/batch")
+    public Object getBatch(@RequestBody List<String> ids) throws Exception {
+        return reply(svc.getAllAsync(ids).thenApply(LogContext.propagate(found -> {
+            LOG.info("Get batch of {} events, {} found", ids.size(), found.size());
+            return found;
+        })));
+    }
+
+    @GetMapping("/cluster/latency")
+    public Map<String, Double> nodeLatencies() {
+        return svc.nodeLatencies();
+    }
+
+    @GetMapping("/cache/stats")
+    public EventCache.Stats cacheStats() {
+        return svc.cacheStats();
+    }
+
+    @GetMapping("/cache/query-stats")
+    public QueryCache.Stats queryCacheStats() {
+        return svc.queryCacheStats();
     }
 
     @PostMapping("/update/{id}")
-    public ResponseEntity<Void> update(@PathVariable String id,
-                                       @RequestBody ElkEvent body) throws Exception {
-        mdc();
-        svc.update(id, body);
-        LOG.info("Updated event {}", id);
-        return ResponseEntity.ok().build();
+    public Object update(@PathVariable String id,
+                         @RequestBody ElkEvent body) throws Exception {
+        return reply(svc.updateAsync(id, body).thenApply(LogContext.propagate(v -> {
+            LOG.info("Updated event {}", id);
+            return ResponseEntity.ok().build();
+        })));
     }
 
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<Void> delete(@PathVariable String id) throws Exception {
-        mdc();
-        svc.delete(id);
-        LOG.info("Deleted event {}", id);
-        return ResponseEntity.ok().build();
+    public Object delete(@PathVariable String id) throws Exception {
+        return reply(svc.deleteAsync(id).thenApply(LogContext.propagate(v -> {
+            LOG.info("Deleted event {}", id);
+            return ResponseEntity.ok().build();
+        })));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> raw(RawEvents.Body body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body::writeTo);
+    }
+
+    /**
+     * In ASYNC mode the future itself goes back to Spring MVC, which completes
+     * the response when it does; in BLOCKING mode this thread waits for it.
+     */
+    private Object reply(CompletableFuture<?> result) throws IOException {
+        return async ? result : EventService.join(result);
     }
 
 
     @GetMapping("/query/all")
-    public List<ElkEvent> all() throws Exception {
-        mdc();
-        return svc.all();
+    public Object all(@RequestParam(required = false) String stream,
+                      @RequestParam(required = false) Integer size,
+                      @RequestParam(required = false) String cursor,
+                      @RequestParam(required = false) String fields) throws Exception {
+        return query(EventQuery.all(), fields, stream, size, cursor);
     }
 
     @GetMapping("/query/workshops")
-    public List<ElkEvent> workshops() throws Exception {
-        mdc();
-        return svc.workshops();
+    public Object workshops(@RequestParam(required = false) String stream,
+                            @RequestParam(required = false) Integer size,
+                            @RequestParam(required = false) String cursor,
+                            @RequestParam(required = false) String fields) throws Exception {
+        return query(EventQuery.workshops(), fields, stream, size, cursor);
     }
 
     @GetMapping("/query/title/{title}")
-    public List<ElkEvent> byTitle(@PathVariable String title) throws Exception {
-        mdc();
-        return svc.byTitle(title);
+    public Object byTitle(@PathVariable String title,
+                          @RequestParam(required = false) String stream,
+                          @RequestParam(required = false) Integer size,
+                          @RequestParam(required = false) String cursor,
+                          @RequestParam(required = false) String fields) throws Exception {
+        return query(EventQuery.byTitle(title), fields, stream, size, cursor);
     }
 
     @GetMapping("/query/after/{date}/{title}")
-    public List<ElkEvent> after(@PathVariable String title, @PathVariable String date) throws Exception {
-        mdc();
-        return svc.afterDateWithTitle(date, title);
+    public Object after(@PathVariable String title, @PathVariable String date,
+                        @RequestParam(required = false) String stream,
+                        @RequestParam(required = false) Integer size,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) String fields) throws Exception {
+        return query(EventQuery.afterDateWithTitle(date, title), fields, stream, size, cursor);
+    }
+
+    /**
+     * {@code ?stream=ndjson|array} streams every match, {@code ?size=} / {@code ?cursor=}
+     * returns one cursor page, and no parameter keeps the plain single search.
+     * {@code ?fields=summary} or {@code ?fields=id,title,...} fetches only those fields
+     * from Elasticsearch and answers with {@link EventSummary} projections. With
+     * events.api.passthrough the plain search without {@code ?fields=} copies the stored
+     * sources instead; a projection always takes the bound path.
+     */
+    private Object query(EventQuery base, String fields, String stream, Integer size, String cursor) throws Exception {
+        EventQuery q;
+        try {
+            q = fields == null ? base : base.withFields(EventQuery.parseFields(fields));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        boolean projected = fields != null;
+        if (stream != null) {
+            if (!stream.equals("ndjson") && !stream.equals("array")) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown stream '" + stream + "', expected ndjson or array");
+            }
+            // before the 200 goes out; the body runs after it
+            svc.bootstrap().checkReady();
+            boolean array = stream.equals("array");
+            StreamingResponseBody body = out -> {
+                ObjectWriter writer = json.writerFor(projected ? EventSummary.class : ElkEvent.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                JsonGenerator gen = json.getFactory().createGenerator(out);
+                gen.setRootValueSeparator(null);
+                if (array) {
+                    gen.writeStartArray();
+                }
+                long n = svc.stream(q, page -> {
+                    for (ElkEvent ev : page) {
+                        writer.writeValue(gen, projected ? EventSummary.of(ev) : ev);
+                        if (!array) {
+                            gen.writeRaw('\n');
+                        }
+                    }
+                    gen.flush();
+                });
+                if (array) {
+                    gen.writeEndArray();
+                }
+                gen.close();
+                LOG.info("Streamed {} events for {}", n, q.kind());
+            };
+            return ResponseEntity.ok()
+                    .contentType(array ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                    .body(body);
+        }
+        if (size != null || cursor != null) {
+            EventPage.Cursor from;
+            try {
+                from = cursor == null ? null : EventPage.Cursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+            EventPage<ElkEvent> page = svc.page(q, size, from);
+            return ResponseEntity.ok(projected ? page.map(EventSummary::of) : page);
+        }
+        if (passthrough && !projected) {
+            return reply(svc.searchRawAsync(q).thenApply(EventController::raw));
+        }
+        return reply(projected
+                ? svc.searchAsync(q).thenApply(events -> events.stream().map(EventSummary::of).toList())
+                : svc.searchAsync(q));
+    }
+
+    /**
+     * Deletes the matches of {@code all}, {@code workshops}, {@code title} ({@code ?title=}) or
+     * {@code after} ({@code ?after=&title=}) as a sliced cluster task; answers 202 with its id
+     * for {@code /tasks/{task}}. {@code ?requestsPerSecond=} throttles it.
+     */
+    @PostMapping("/delete-by-query/{kind}")
+    public Object deleteByQuery(@PathVariable String kind,
+                                @RequestParam(required = false) String title,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) Float requestsPerSecond) throws Exception {
+        EventQuery q = byQuery(kind, title, after);
+        return reply(svc.deleteByQueryAsync(q, requestsPerSecond).thenApply(LogContext.propagate(task -> {
+            LOG.info("Started delete-by-query {} for {}", task, q.kind());
+            return ResponseEntity.accepted().body(Map.of("task", task));
+        })));
+    }
+
+    /** As {@code /delete-by-query}, setting the fields of the JSON body on every match. */
+    @PostMapping("/update-by-query/{kind}")
+    public Object updateByQuery(@PathVariable String kind,
+                                @RequestParam(required = false) String title,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) Float requestsPerSecond,
+                                @RequestBody Map<String, Object> fields) throws Exception {
+        EventQuery q = byQuery(kind, title, after);
+        CompletableFuture<String> started;
+        try {
+            started = svc.updateByQueryAsync(q, fields, requestsPerSecond);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return reply(started.thenApply(LogContext.propagate(task -> {
+            LOG.info("Started update-by-query {} for {} setting {}", task, q.kind(), fields.keySet());
+            return ResponseEntity.accepted().body(Map.of("task", task));
+        })));
+    }
+
+    private static EventQuery byQuery(String kind, String title, String after) {
+        EventQuery q = switch (kind) {
+            case "all" -> EventQuery.all();
+            case "workshops" -> EventQuery.workshops();
+            case "title" -> title == null ? null : EventQuery.byTitle(title);
+            case "after" -> title == null || after == null ? null : EventQuery.afterDateWithTitle(after, title);
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unknown query '" + kind + "', expected all, workshops, title or after");
+        };
+        if (q == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Query '" + kind + "' needs ?title="
+                    + (kind.equals("after") ? " and ?after=" : ""));
+        }
+        return q;
+    }
+
+    /** Progress of a by-query task started by this service; any other task id is a 404. */
+    @GetMapping("/tasks/{task}")
+    public Object taskStatus(@PathVariable String task) throws Exception {
+        checkOwned(task);
+        return reply(svc.taskStatusAsync(task));
+    }
+
+    /** Stops a by-query task; what it already deleted or updated stays so. */
+    @PostMapping("/tasks/{task}/cancel")
+    public Object cancelTask(@PathVariable String task) throws Exception {
+        checkOwned(task);
+        return reply(svc.cancelTaskAsync(task).thenApply(LogContext.propagate(v -> {
+            LOG.info("Cancelled task {}", task);
+            return ResponseEntity.ok().build();
+        })));
+    }
+
+    private void checkOwned(String task) {
+        if (!svc.ownsTask(task)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No by-query task " + task);
+        }
+    }
+
+    /** Type-ahead: up to {@code size} distinct titles starting with {@code prefix}, with their ids. */
+    @GetMapping("/suggest/title")
+    public Object suggestTitle(@RequestParam String prefix,
+                               @RequestParam(required = false) Integer size) throws Exception {
+        return reply(svc.suggestTitlesAsync(prefix, size));
+    }
+
+    @GetMapping("/stats/types")
+    public Object typeCounts() throws Exception {
+        return reply(svc.facetsAsync(true, 0, null).thenApply(EventFacets::eventTypes));
+    }
+
+    @GetMapping("/stats/topics")
+    public Object topicCounts(@RequestParam(defaultValue = "20") int size) throws Exception {
+        return reply(svc.facetsAsync(false, Math.max(size, 1), null).thenApply(EventFacets::subTopics));
+    }
+
+    @GetMapping("/stats/histogram")
+    public Object histogram(@RequestParam(defaultValue = "month") String interval) throws Exception {
+        return reply(svc.facetsAsync(false, 0, interval(interval)).thenApply(EventFacets::histogram));
+    }
+
+    /** All three in one request; {@code topics=0} or {@code interval=none} leaves a part out. */
+    @GetMapping("/stats/facets")
+    public Object facets(@RequestParam(defaultValue = "20") int topics,
+                         @RequestParam(defaultValue = "month") String interval) throws Exception {
+        return reply(svc.facetsAsync(true, topics, interval.equals("none") ? null : interval(interval)));
+    }
+
+    private static CalendarInterval interval(String name) {
+        try {
+            return EventStats.interval(name);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping("/create-index")
     public ResponseEntity<Void> createIndex() throws Exception {
-        mdc();
         svc.createIndex();
         LOG.info("Index '{}' created / reset", "events");
         return ResponseEntity.ok().build();
@@ -113,8 +370,18 @@ public class EventController {
 
     @GetMapping("/index")
     public String indexInfo() throws Exception {
-        mdc();
         LOG.info("Get index {}", "events");
-        return svc.getIndex().indices().get("events").toString();
+        Map<String, IndexState> indices = svc.getIndex().indices();
+        return indices.containsKey("events") ? indices.get("events").toString() : indices.toString();
+    }
+
+    @GetMapping("/partitions")
+    public Map<String, Instant> partitions() {
+        return svc.partitionBounds();
+    }
+
+    @PostMapping("/partitions/maintain")
+    public Map<String, Instant> maintainPartitions() throws Exception {
+        return svc.maintainPartitions();
     }
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+package demo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Dumps an index to gzip NDJSON files, one per point-in-time slice, scanned in
+ * parallel over the low-level client. This is not a streaming read: the client
+ * buffers each whole page on the heap before {@code performRequest} returns, so
+ * memory per slice grows with {@code pageSize}. From that buffer each hit's
+ * {@code _source} is copied token by token into the file, so no page is ever turned
+ * into a String or bound to objects. The output can be fed back to /bulk-import.
+ * The first slice to fail stops the others after their current page.
+ */
+public class EventExporter {
+
+    private static final Logger LOG = LogManager.getLogger(EventExporter.class);
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final RestClient rest;
+    private final ExportProperties props;
+    private final ElasticsearchMetrics metrics;
+    private final JsonFactory json = new JsonFactory();
+
+    /** {@code metrics} times each call in {@code es.requests}; null leaves them untimed. */
+    public EventExporter(RestClient rest, ExportProperties props, ElasticsearchMetrics metrics) {
+        this.rest = rest;
+        this.props = props;
+        this.metrics = metrics;
+    }
+
+    public ExportSummary export(String index) throws IOException {
+        Path dir = Path.of(props.directory(), index + "-" + RUN_NAME.format(LocalDateTime.now()));
+        Files.createDirectories(dir);
+        Run run = new Run();
+        String keepAlive = props.keepAlive().toSeconds() + "s";
+        String pitId = openPit(index, keepAlive);
+
+        List<Path> files = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(props.slices())) {
+            CompletionService<Void> slices = new ExecutorCompletionService<>(pool);
+            for (int i = 0; i < props.slices(); i++) {
+                int slice = i;
+                Path file = dir.resolve(index + "-" + slice + ".ndjson.gz");
+                files.add(file);
+                slices.submit(() -> {
+                    exportSlice(pitId, keepAlive, slice, file, run);
+                    return null;
+                });
+            }
+            for (int i = 0; i < props.slices(); i++) {
+                try {
+                    slices.take().get();
+                } catch (ExecutionException e) {
+                    run.aborted = true;
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            run.aborted = true;
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } finally {
+            closePit(pitId);
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.start);
+        long docs = run.docs.get();
+        LOG.info("Exported {} documents ({} bytes) from {} in {} ms", docs, run.bytes.get(), index, millis);
+        return new ExportSummary(docs, run.bytes.get(), millis,
+                millis == 0 ? docs : docs * 1000.0 / millis,
+                files.stream().map(Path::toString).toList());
+    }
+
+    private void exportSlice(String pitId, String keepAlive, int slice, Path file, Run run) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+             ChannelOutput out = new ChannelOutput(channel, (int) props.bufferSize().toBytes(), run.bytes);
+             JsonGenerator gen = json.createGenerator(new GZIPOutputStream(out, 64 * 1024))) {
+            String pit = pitId;
+            long after = -1;
+            while (!run.aborted) {
+                Request req = new Request("POST", "/_search");
+                req.addParameter("filter_path", "pit_id,hits.hits._source,hits.hits.sort");
+                req.setEntity(new NByteArrayEntity(searchBody(pit, keepAlive, slice, after),
+                        ContentType.APPLICATION_JSON));
+                Response rsp = perform("search", req);
+
+                Page page = new Page(pit, after);
+                try (InputStream in = rsp.getEntity().getContent();
+                     JsonParser p = json.createParser(in)) {
+                    copyHits(p, gen, page);
+                }
+                if (page.hits == 0) {
+                    return;
+                }
+                pit = page.pit;
+                after = page.after;
+                run.progress(page.hits);
+            }
+        }
+    }
+
+    private byte[] searchBody(String pit, String keepAlive, int slice, long after) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+        try (JsonGenerator g = json.createGenerator(body)) {
+            g.writeStartObject();
+            g.writeNumberField("size", props.pageSize());
+            g.writeBooleanField("track_total_hits", false);
+            g.writeObjectFieldStart("pit");
+            g.writeStringField("id", pit);
+            g.writeStringField("keep_alive", keepAlive);
+            g.writeEndObject();
+            if (props.slices() > 1) {
+                g.writeObjectFieldStart("slice");
+                g.writeNumberField("id", slice);
+                g.writeNumberField("max", props.slices());
+                g.writeEndObject();
+            }
+            g.writeArrayFieldStart("sort");
+            g.writeString("_shard_doc");
+            g.writeEndArray();
+            if (after >= 0) {
+                g.writeArrayFieldStart("search_after");
+                g.writeNumber(after);
+                g.writeEndArray();
+            }
+            g.writeEndObject();
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Walks {@code {"pit_id":..,"hits":{"hits":[{"_source":{..},"sort":[..]}, ..]}}},
+     * writing each source as one line and remembering the last sort value.
+     */
+    private static void copyHits(JsonParser p, JsonGenerator gen, Page page) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected search response");
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if ("pit_id".equals(field)) {
+                page.pit = p.getText();
+            } else if ("hits".equals(field)) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    boolean hits = "hits".equals(p.currentName());
+                    p.nextToken();
+                    if (!hits) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        while (p.nextToken() == JsonToken.FIELD_NAME) {
+                            String hitField = p.currentName();
+                            p.nextToken();
+                            if ("_source".equals(hitField)) {
+                                gen.copyCurrentStructure(p);
+                                gen.writeRaw('\n');
+                            } else if ("sort".equals(hitField)) {
+                                while (p.nextToken() != JsonToken.END_ARRAY) {
+                                    page.after = p.getLongValue();
+                                }
+                            } else {
+                                p.skipChildren();
+                            }
+                        }
+                        page.hits++;
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+    }
+
+    private String openPit(String index, String keepAlive) throws IOException {
+        Request req = new Request("POST", "/" + index + "/_pit");
+        req.addParameter("keep_alive", keepAlive);
+        Response rsp = perform("open_point_in_time", req);
+        try (InputStream in = rsp.getEntity().getContent();
+             JsonParser p = json.createParser(in)) {
+            while (p.nextToken() != null) {
+                if (p.currentToken() == JsonToken.FIELD_NAME && "id".equals(p.currentName())) {
+                    return p.nextTextValue();
+                }
+            }
+        }
+        throw new IOException("No point-in-time id in response");
+    }
+
+    private void closePit(String pitId) {
+        try {
+            Request req = new Request("DELETE", "/_pit");
+            req.setJsonEntity("{\"id\":\"" + pitId + "\"}");
+            perform("close_point_in_time", req);
+        } catch (IOException e) {
+            LOG.debug("Could not close point-in-time: {}", e.getMessage());
+        }
+    }
+
+    /** Sends {@code req}, timed as {@code operation} up to the buffered response. */
+    private Response perform(String operation, Request req) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Response rsp = rest.performRequest(req);
+            if (metrics != null) {
+                metrics.record(operation, System.nanoTime() - start, rsp.getStatusLine().getStatusCode(), null);
+            }
+            return rsp;
+        } catch (IOException | RuntimeException e) {
+            if (metrics != null) {
+                int status = e instanceof ResponseException re ? re.getResponse().getStatusLine().getStatusCode() : 0;
+                metrics.record(operation, System.nanoTime() - start, status, e);
+            }
+            throw e;
+        }
+    }
+
+    private static final class Page {
+        String pit;
+        long after;
+        int hits;
+
+        Page(String pit, long after) {
+            this.pit = pit;
+            this.after = after;
+        }
+    }
+
+    private static final class Run {
+        final long start = System.nanoTime();
+        final AtomicLong docs = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong reported = new AtomicLong(start);
+        volatile boolean aborted;
+
+        void progress(int hits) {
+            long total = docs.addAndGet(hits);
+            long now = System.nanoTime();
+            long last = reported.get();
+            if (now - last >= PROGRESS_NANOS && reported.compareAndSet(last, now)) {
+                double seconds = (now - start) / 1e9;
+                LOG.info("Exported {} documents, {} MB written, {} docs/s",
+                        total, bytes.get() >> 20, Math.round(total / seconds));
+            }
+        }
+    }
+
+    /** Collects writes in a direct buffer and hands full buffers to the channel. */
+    private static final class ChannelOutput extends OutputStream {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final AtomicLong written;
+
+        ChannelOutput(FileChannel channel, int size, AtomicLong written) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(size);
+            this.written = written;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            written.addAndGet(buffer.remaining());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * Bucket counts over the events index: documents per event type, per sub-topic
+ * and per calendar interval. Parts that were not requested are omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventFacets(
+        long              total,
+        Map<String, Long> eventTypes,
+        Map<String, Long> subTopics,
+        Map<String, Long> histogram
+) { }
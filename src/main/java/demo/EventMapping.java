@@ -0,0 +1,24 @@
+package demo;
+
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+
+/**
+ * The one definition of the events mapping, used for the single index, the
+ * partition template and the CLI examples.
+ */
+final class EventMapping {
+
+    private EventMapping() {
+    }
+
+    static TypeMapping mapping() {
+        return TypeMapping.of(m -> m
+                .properties("title",      p -> p.text(t -> t
+                        .fields("suggest", f -> f.completion(c -> c))))   // /suggest/title
+                .properties("eventType",  p -> p.keyword(k -> k))
+                .properties("datetime",   p -> p.date(d -> d))
+                .properties("place",      p -> p.text(t -> t))
+                .properties("description",p -> p.text(t -> t))
+                .properties("subTopics",  p -> p.keyword(k -> k)));
+    }
+}
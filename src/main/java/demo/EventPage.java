@@ -0,0 +1,46 @@
+package demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a point-in-time walk. {@code cursor} is null on the last page.
+ */
+public record EventPage<T>(List<T> events, String cursor) {
+
+    public <R> EventPage<R> map(Function<T, R> f) {
+        return new EventPage<>(events.stream().map(f).toList(), cursor);
+    }
+
+    /**
+     * Position inside a point-in-time: the PIT id and the {@code _shard_doc}
+     * sort value of the last hit returned.
+     */
+    record Cursor(String pitId, long after) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(pitId.getBytes(StandardCharsets.UTF_8)) + "." + after;
+        }
+
+        /** Reads back what {@link #encode()} wrote; anything else is an IllegalArgumentException. */
+        static Cursor decode(String cursor) {
+            int dot = cursor.lastIndexOf('.');
+            try {
+                if (dot <= 0) {
+                    throw new IllegalArgumentException("no position");
+                }
+                String pitId = new String(Base64.getUrlDecoder().decode(cursor.substring(0, dot)), StandardCharsets.UTF_8);
+                long after = Long.parseLong(cursor.substring(dot + 1));
+                if (after < 0) {
+                    throw new IllegalArgumentException("negative position");
+                }
+                return new Cursor(pitId, after);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package demo;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One of the canned event queries plus its parameters, and the {@code _source}
+ * fields to fetch; no fields means the whole document.
+ */
+public record EventQuery(Kind kind, List<String> params, List<String> fields) {
+
+    public enum Kind { ALL, WORKSHOPS, TITLE, AFTER_DATE_WITH_TITLE }
+
+    /** Fields an event can be projected on. */
+    public static final Set<String> FIELDS =
+            Set.of("id", "title", "eventType", "datetime", "place", "description", "subTopics");
+
+    /** What list views need; {@code ?fields=summary}. */
+    public static final List<String> SUMMARY = List.of("id", "title", "eventType", "datetime");
+
+    public EventQuery(Kind kind, List<String> params) {
+        this(kind, params, List.of());
+    }
+
+    /**
+     * Parses {@code summary} or a comma separated list of event fields.
+     *
+     * @throws IllegalArgumentException on an unknown field
+     */
+    public static List<String> parseFields(String spec) {
+        if (spec.equals("summary")) {
+            return SUMMARY;
+        }
+        List<String> fields = Arrays.stream(spec.split(",")).map(String::strip).distinct().sorted().toList();
+        for (String f : fields) {
+            if (!FIELDS.contains(f)) {
+                throw new IllegalArgumentException("Unknown field '" + f + "', expected one of " + FIELDS);
+            }
+        }
+        return fields;
+    }
+
+    public EventQuery withFields(List<String> fields) {
+        return new EventQuery(kind, params, fields);
+    }
+
+    public static EventQuery all() {
+        return new EventQuery(Kind.ALL, List.of());
+    }
+
+    public static EventQuery workshops() {
+        return new EventQuery(Kind.WORKSHOPS, List.of());
+    }
+
+    public static EventQuery byTitle(String title) {
+        return new EventQuery(Kind.TITLE, List.of(title));
+    }
+
+    public static EventQuery afterDateWithTitle(String iso, String title) {
+        return new EventQuery(Kind.AFTER_DATE_WITH_TITLE, List.of(iso, title));
+    }
+
+    /** Same query with insignificant whitespace removed, so equal searches share a cache entry. */
+    public EventQuery normalized() {
+        return new EventQuery(kind, params.stream().map(p -> p.strip().replaceAll("\\s+", " ")).toList(), fields);
+    }
+
+    public Query toQuery() {
+        return switch (kind) {
+            case ALL -> Query.of(q -> q.matchAll(m -> m));
+            case WORKSHOPS -> Query.of(q -> q.term(t -> t.field("eventType").value(v -> v.stringValue("WORKSHOP"))));
+            case TITLE -> Query.of(q -> q.match(m -> m
+                    .field("title")
+                    .query(params.get(0))));
+            case AFTER_DATE_WITH_TITLE -> Query.of(q -> q.bool(b -> b
+                    .must(m -> m.match(t -> t.field("title").query(params.get(1))))
+                    .must(m -> m.range(r -> r.date(d -> d.field("datetime").gt(params.get(0)))))));
+        };
+    }
+}
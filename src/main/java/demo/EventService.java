@@ -1,119 +1,658 @@
 package demo;
 
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.GetResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.search.SourceConfig;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetOperation;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
-import co.elastic.clients.json.JsonData;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
-import co.elastic.clients.util.ObjectBuilder;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.elasticsearch.client.RestClient;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.Request;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 @Service
 public class EventService {
 
+    private static final Logger LOG = LogManager.getLogger(EventService.class);
     private static final String INDEX = "events";
     private final ElasticsearchClient es;
+    private final ElasticsearchAsyncClient esAsync;
+    private final WritePipeline writes;
+    private final EventCache cache;
+    private final QueryCache queries;
+    private final GetCollapser collapser;
+    private final ClientFactory clients;
+    private final EventStats stats;
+    private final ByQueryTasks byQuery;
+    private final TitleSuggester suggester;
+    private final RawEvents raw;
+    private final PartitionManager partitions;
+    private final String writeTarget;
+    private final IndexBootstrap bootstrap;
+    private final WriteJournal journal;
+    private final JournalReplayer replayer;
+    private final ObjectMapper json = objectMapper();
+    private final ObjectWriter journalEntries = json.writerFor(JournalEntry.class);
+    private final ObjectWriter rawWriter = json.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    /** Partitions of the batch being replayed; only touched by the replay thread. */
+    private Set<String> replayedPartitions = Set.of();
+    private final BulkImporter importer;
+    private final EventExporter exporter;
+    private final QueryProperties paging;
+    private final String keepAlive;
+    private final Object fastIndexingLock = new Object();
+    private int fastImports;
+    private IndexSettings savedSettings;
 
-    public EventService() throws IOException {
-        BasicCredentialsProvider cp = new BasicCredentialsProvider();
-        cp.setCredentials(AuthScope.ANY,
-                new UsernamePasswordCredentials("elastic", "changeme"));
-        RestClient rest = RestClient.builder(new HttpHost("localhost", 9200))
-                .setHttpClientConfigCallback(h -> h.setDefaultCredentialsProvider(cp))
-                .build();
+    public EventService(ClientProperties client, WriteProperties write, QueryProperties paging, CacheProperties caching,
+                        GetProperties gets, ImportProperties imports,
+                        ExportProperties exports, QueryCacheProperties queryCaching,
+                        MeterRegistry registry, MetricsProperties metrics,
+                        PartitionProperties partitioning, StartupProperties startup,
+                        JournalProperties journaling, SuggestProperties suggesting,
+                        LimitProperties limiting) throws IOException {
+        clients = new ClientFactory(client);
+        clients.bindTo(registry);
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper(objectMapper());
+        ElasticsearchMetrics calls = new ElasticsearchMetrics(registry, metrics);
+        ElasticsearchTransport transport = clients.transport(mapper, calls);
+        AdaptiveLimit reads = limiting.enabled()
+                ? new AdaptiveLimit("read", limiting.readInitial(), limiting.readMax(), limiting)
+                : AdaptiveLimit.unbounded("read");
+        if (limiting.enabled()) {
+            LimitedTransport limited = new LimitedTransport(transport, reads,
+                    new AdaptiveLimit("write", limiting.writeInitial(), limiting.writeMax(), limiting), limiting);
+            limited.bindTo(registry);
+            transport = limited;
+        }
+        es = new ElasticsearchClient(transport);
+        esAsync = new ElasticsearchAsyncClient(transport);
+        writes = new WritePipeline(esAsync, write);
+        importer = new BulkImporter(esAsync, imports);
+        exporter = new EventExporter(clients.restClient(), exports, calls);
+        stats = new EventStats(esAsync, INDEX);
+        byQuery = new ByQueryTasks(esAsync, this::byQueryDone);
+        suggester = new TitleSuggester(esAsync, INDEX, suggesting);
+        suggester.bindTo(registry);
+        raw = new RawEvents(clients.restClient(), mapper, reads, calls, INDEX, partitioning.enabled());
+        collapser = gets.collapseWindow().isZero() ? null : new GetCollapser(gets, this::loadAll);
+        cache = new EventCache(caching, new AsyncCacheLoader<>() {
+            @Override
+            public CompletableFuture<Optional<ElkEvent>> asyncLoad(String id, Executor executor) {
+                return load(id);
+            }
+
+            @Override
+            public CompletableFuture<Map<String, Optional<ElkEvent>>> asyncLoadAll(
+                    Set<? extends String> ids, Executor executor) {
+                return loadAll(ids);
+            }
+        });
+        queries = new QueryCache(queryCaching);
+        cache.bindTo(registry);
+        queries.bindTo(registry);
+        Gauge.builder("events.write.pending", writes, WritePipeline::pending)
+                .description("Writes queued or in flight").register(registry);
+        this.paging = paging;
+        keepAlive = paging.keepAlive().toSeconds() + "s";
 
-        ObjectMapper om = new ObjectMapper()
+        if (partitioning.enabled()) {
+            partitions = new PartitionManager(es, partitioning, INDEX);
+            writeTarget = partitions.writeAlias();
+            bootstrap = new IndexBootstrap(partitions::bootstrap, startup);
+        } else {
+            partitions = null;
+            writeTarget = INDEX;
+            bootstrap = new IndexBootstrap(() -> {
+                if (!es.indices().exists(e -> e.index(INDEX)).value()) {
+                    es.indices().create(c -> c.index(INDEX).mappings(EventMapping.mapping()));
+                } else {
+                    // adds sub-fields introduced since the index was created, e.g. title.suggest
+                    es.indices().putMapping(m -> m.index(INDEX).properties(EventMapping.mapping().properties()));
+                }
+            }, startup);
+        }
+        bootstrap.start();
+
+        if (journaling.enabled()) {
+            journal = new WriteJournal(journaling);
+            replayer = new JournalReplayer(es, journal, journaling, this::journalOperations, this::journalReplayed);
+            replayer.bindTo(registry);
+        } else {
+            journal = null;
+            replayer = null;
+        }
+    }
+
+
+    /** The mapper documents are (de)serialized with on the way to and from Elasticsearch. */
+    static ObjectMapper objectMapper() {
+        return new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);   // ISO-8601
+    }
 
-        es = new ElasticsearchClient(
-                new co.elastic.clients.transport.rest_client.RestClientTransport(
-                        rest, new JacksonJsonpMapper(om)));
-
-        if (!es.indices().exists(e -> e.index(INDEX)).value()) {
-            es.indices().create(c -> c.index(INDEX)
-                    .mappings(m -> m
-                            .properties("title",      p -> p.text(t -> t))
-                            .properties("eventType",  p -> p.keyword(k -> k))
-                            .properties("datetime",   p -> p.date(d -> d))
-                            .properties("place",      p -> p.text(t -> t))
-                            .properties("description",p -> p.text(t -> t))
-                            .properties("subTopics",  p -> p.keyword(k -> k))));
+    @PreDestroy
+    public void close() {
+        bootstrap.close();
+        if (replayer != null) {
+            replayer.close();
+            journal.close();
+        }
+        writes.close();
+        byQuery.close();
+        if (partitions != null) {
+            partitions.close();
+        }
+        if (collapser != null) {
+            collapser.close();
+        }
+        try {
+            clients.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close Elasticsearch client: {}", e.getMessage());
         }
     }
 
+    /** Recent latency per node in milliseconds, as seen by the node selector. */
+    public Map<String, Double> nodeLatencies() {
+        return clients.selector().latencies();
+    }
+
 
     public String store(ElkEvent ev) throws IOException {
+        return join(storeAsync(ev));
+    }
+
+    public CompletableFuture<String> storeAsync(ElkEvent ev) throws IOException {
         String id = ev.id() == null ? UUID.randomUUID().toString() : ev.id();
-        es.index(i -> i.index(INDEX).id(id).document(ev));
-        return id;
+        queries.invalidate();
+        if (journal != null) {
+            // the journaled value replaces the cached one; nothing is invalidated first
+            journal.append(journalEntries.writeValueAsBytes(new JournalEntry(JournalEntry.Op.INDEX, id, ev)));
+            cache.put(id, ev);
+            return CompletableFuture.completedFuture(id);
+        }
+        cache.invalidate(id);
+        CompletableFuture<?> result = submit(id, ev.id() != null,
+                index -> BulkOperation.of(o -> o.index(i -> i.index(index).id(id).document(ev))));
+        return writes.acknowledged(result.whenComplete((item, err) -> {
+            queries.invalidate();
+            if (err == null) {
+                cache.put(id, ev);
+            } else {
+                cache.invalidate(id);
+            }
+        }), id);
     }
 
     public ElkEvent get(String id) throws IOException {
-        GetResponse<ElkEvent> rsp = es.get(g -> g.index(INDEX).id(id), ElkEvent.class);
-        return rsp.found() ? rsp.source() : null;
+        return join(getAsync(id));
     }
 
+    public CompletableFuture<ElkEvent> getAsync(String id) {
+        return bootstrap.whenReady(() -> cache.get(id)).thenApply(ev -> ev.orElse(null));
+    }
+
+    /**
+     * The stored document of {@code id} as it comes from Elasticsearch, or null when there
+     * is none. Skips the event cache, so it always costs a round trip, except in journal
+     * mode: a write is only in the cache until it is replayed, so whatever the cache holds
+     * for {@code id} is served from there.
+     */
+    public CompletableFuture<RawEvents.Body> getRawAsync(String id) {
+        CompletableFuture<Optional<ElkEvent>> cached = journal != null ? cache.getIfPresent(id) : null;
+        if (cached != null) {
+            return bootstrap.whenReady(() -> cached.thenApply(ev -> ev.map(this::rawBody).orElse(null)));
+        }
+        return bootstrap.whenReady(() -> raw.get(id));
+    }
+
+    private RawEvents.Body rawBody(Object value) {
+        return out -> rawWriter.writeValue(out, value);
+    }
+
+    /** Found events by id, in request order; ids that don't exist are left out. */
+    public Map<String, ElkEvent> getAll(List<String> ids) throws IOException {
+        return join(getAllAsync(ids));
+    }
+
+    public CompletableFuture<Map<String, ElkEvent>> getAllAsync(List<String> ids) {
+        return bootstrap.whenReady(() -> cache.getAll(ids)).thenApply(loaded -> {
+            Map<String, ElkEvent> found = new LinkedHashMap<>();
+            for (String id : ids) {
+                Optional<ElkEvent> ev = loaded.get(id);
+                if (ev != null && ev.isPresent()) {
+                    found.put(id, ev.get());
+                }
+            }
+            return found;
+        });
+    }
+
+    private CompletableFuture<Optional<ElkEvent>> load(String id) {
+        if (collapser != null || partitions != null) {
+            return collapser != null ? collapser.get(id) : loadAll(List.of(id)).thenApply(
+                    found -> found.getOrDefault(id, Optional.empty()));
+        }
+        return esAsync.get(g -> g.index(INDEX).id(id), ElkEvent.class)
+                .thenApply(rsp -> rsp.found() ? Optional.of(rsp.source()) : Optional.empty());
+    }
+
+    /**
+     * One _mget for all {@code ids}; ids whose lookup failed are missing from the map.
+     * Partitioned, _mget needs a concrete index, so each id is located first and then
+     * read in real time from its partition; see {@link #locateAll}.
+     */
+    private CompletableFuture<Map<String, Optional<ElkEvent>>> loadAll(Collection<? extends String> ids) {
+        if (partitions != null) {
+            return locateAll(ids).thenCompose(located -> esAsync.mget(m -> m.docs(located.entrySet().stream()
+                    .map(e -> MultiGetOperation.of(d -> d.index(e.getValue()).id(e.getKey())))
+                    .toList()), ElkEvent.class)).thenApply(EventService::found);
+        }
+        return esAsync.mget(m -> m.index(INDEX).ids(List.copyOf(ids)), ElkEvent.class).thenApply(EventService::found);
+    }
+
+    private static Map<String, Optional<ElkEvent>> found(MgetResponse<ElkEvent> rsp) {
+        Map<String, Optional<ElkEvent>> found = new HashMap<>();
+        for (MultiGetResponseItem<ElkEvent> item : rsp.docs()) {
+            if (item.isResult()) {
+                GetResult<ElkEvent> doc = item.result();
+                found.put(doc.id(), doc.found() ? Optional.of(doc.source()) : Optional.empty());
+            } else {
+                LOG.warn("Multi-get of {} failed: {}", item.failure().id(), item.failure().error().reason());
+            }
+        }
+        return found;
+    }
+
+    public EventCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Sets the fields of {@code ev} on the event {@code id}. Journaled, the update is
+     * acknowledged once appended and the merged event is cached until it is replayed; an
+     * update of an id that does not exist is acknowledged all the same, and then dropped
+     * at replay when Elasticsearch answers 404 (counted in {@code events.journal.dropped}).
+     */
     public void update(String id, ElkEvent ev) throws IOException {
-        es.update(u -> u.index(INDEX).id(id).doc(ev), ElkEvent.class);
+        join(updateAsync(id, ev));
+    }
+
+    public CompletableFuture<Void> updateAsync(String id, ElkEvent ev) throws IOException {
+        queries.invalidate();
+        if (journal != null) {
+            // merged into what is cached, which may be a journaled write not yet replayed
+            journal.append(journalEntries.writeValueAsBytes(new JournalEntry(JournalEntry.Op.UPDATE, id, ev)));
+            cache.update(id, current -> current.map(doc -> merged(doc, ev)));
+            return CompletableFuture.completedFuture(null);
+        }
+        cache.invalidate(id);
+        CompletableFuture<?> result = submit(id, true,
+                index -> BulkOperation.of(o -> o.update(u -> u.index(index).id(id).action(a -> a.doc(ev)))));
+        return writes.acknowledged(result.whenComplete((item, err) -> {
+            cache.invalidate(id);
+            queries.invalidate();
+        }), null);
+    }
+
+    /**
+     * What Elasticsearch holds after a partial update of {@code doc} with {@code partial}:
+     * each field {@code partial} serializes, nulls included, replaces the stored one.
+     */
+    private ElkEvent merged(ElkEvent doc, ElkEvent partial) {
+        ObjectNode merged = json.valueToTree(doc);
+        merged.setAll((ObjectNode) json.valueToTree(partial));
+        return json.convertValue(merged, ElkEvent.class);
     }
 
     public void delete(String id) throws IOException {
-        es.delete(d -> d.index(INDEX).id(id));
+        join(deleteAsync(id));
+    }
+
+    public CompletableFuture<Void> deleteAsync(String id) throws IOException {
+        queries.invalidate();
+        if (journal != null) {
+            journal.append(journalEntries.writeValueAsBytes(new JournalEntry(JournalEntry.Op.DELETE, id, null)));
+            cache.putAbsent(id);
+            return CompletableFuture.completedFuture(null);
+        }
+        cache.invalidate(id);
+        CompletableFuture<?> result = submit(id, true,
+                index -> BulkOperation.of(o -> o.delete(d -> d.index(index).id(id))));
+        return writes.acknowledged(result.whenComplete((item, err) -> {
+            cache.invalidate(id);
+            queries.invalidate();
+        }), null);
+    }
+
+    /**
+     * Queues the write built by {@code op} for the index holding {@code id}. Unpartitioned
+     * that is always the one index; partitioned, an existing document (when {@code locate})
+     * is written in place and anything else goes to the write alias.
+     */
+    private CompletableFuture<?> submit(String id, boolean locate, Function<String, BulkOperation> op)
+            throws IOException {
+        bootstrap.checkReady();
+        if (partitions == null || !locate) {
+            return writes.submit(op.apply(writeTarget));
+        }
+        return locateAll(List.of(id)).thenCompose(located -> {
+            String index = located.get(id);
+            partitions.touched(index);
+            try {
+                return writes.submit(op.apply(index)).whenComplete((item, err) -> partitions.touched(index));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Bulk operations for a batch of journaled writes, addressed like {@link #submit}
+     * does; refused until the index bootstrap is done, so the replayer waits for it.
+     */
+    private List<BulkOperation> journalOperations(List<JournalEntry> entries) throws IOException {
+        bootstrap.checkReady();
+        Map<String, String> located = Map.of();
+        if (partitions != null) {
+            located = join(locateAll(entries.stream().map(JournalEntry::id).distinct().toList()));
+            replayedPartitions = Set.copyOf(located.values());
+            replayedPartitions.forEach(partitions::touched);
+        }
+        Map<String, String> indices = located;
+        return entries.stream().map(e -> {
+            String index = indices.getOrDefault(e.id(), writeTarget);
+            return switch (e.op()) {
+                case INDEX -> BulkOperation.of(o -> o.index(i -> i.index(index).id(e.id()).document(e.doc())));
+                case UPDATE -> BulkOperation.of(o -> o.update(u -> u.index(index).id(e.id()).action(a -> a.doc(e.doc()))));
+                case DELETE -> BulkOperation.of(o -> o.delete(d -> d.index(index).id(e.id())));
+            };
+        }).toList();
+    }
+
+    /**
+     * The event cache is left as it is: it already holds what each write leaves behind,
+     * and dropping an id here would also drop any later write to it still in the journal.
+     */
+    private void journalReplayed(List<JournalEntry> entries) {
+        if (partitions != null) {
+            replayedPartitions.forEach(partitions::touched);
+        }
+        queries.invalidate();
+    }
+
+    /**
+     * The partition holding each of {@code ids}. The ids search is near-real-time, so an id
+     * it does not find is put in the write partition, where every new document goes; the
+     * old write partition is refreshed at each rollover, so only a document written in the
+     * instant of a rollover can be looked for in the wrong place.
+     */
+    private CompletableFuture<Map<String, String>> locateAll(Collection<? extends String> ids) {
+        return esAsync.search(s -> s
+                        .index(INDEX)
+                        .query(q -> q.ids(i -> i.values(List.copyOf(ids))))
+                        .source(c -> c.fetch(false))
+                        .size(ids.size()),
+                Void.class
+        ).thenApply(rsp -> {
+            Map<String, String> located = new HashMap<>();
+            for (String id : ids) {
+                located.put(id, writeTarget);
+            }
+            for (Hit<Void> hit : rsp.hits().hits()) {
+                located.put(hit.id(), hit.index());
+            }
+            return located;
+        });
     }
 
 
     public List<ElkEvent> all() throws IOException {
-        return search(q -> q.matchAll(m -> m));
+        return search(EventQuery.all());
     }
 
     public List<ElkEvent> workshops() throws IOException {
-        return search(q -> q.term(t -> t.field("eventType").value(v -> v.stringValue("WORKSHOP"))));
+        return search(EventQuery.workshops());
     }
 
     public List<ElkEvent> byTitle(String title) throws IOException {
-        return search(q -> q.match(m -> m
-                .field("title")
-                .query(title)));
+        return search(EventQuery.byTitle(title));
     }
 
     public List<ElkEvent> afterDateWithTitle(String iso, String title) throws IOException {
-        return search(q -> q.bool(b -> b
-                .must(m -> m.match(t -> t.field("title").query(title)))
-                .must(m -> m.range(r -> r.date(d -> d.field("datetime").gt(JsonData.of(iso).toString()))))));
+        return search(EventQuery.afterDateWithTitle(iso, title));
     }
 
-    private List<ElkEvent> search(Function<Query.Builder, ObjectBuilder<Query>> queryBuilder) throws IOException {
-        SearchResponse<ElkEvent> response = es.search(s -> s
-                        .index(INDEX)
-                        .query(queryBuilder),
-                ElkEvent.class
-        );
-        return response.hits().hits().stream().map(Hit::source).toList();
+    public List<ElkEvent> search(EventQuery query) throws IOException {
+        return join(searchAsync(query));
+    }
+
+    public CompletableFuture<List<ElkEvent>> searchAsync(EventQuery query) {
+        return bootstrap.whenReady(() -> queries.get(query, this::searchUncached));
+    }
+
+    /**
+     * The hits of {@code query} as a JSON array of stored documents. A result the query
+     * cache may serve is written from there; otherwise the search is passed through and,
+     * never bound, not cached.
+     */
+    public CompletableFuture<RawEvents.Body> searchRawAsync(EventQuery query) {
+        return bootstrap.whenReady(() -> {
+            List<ElkEvent> cached = queries.getIfFresh(query);
+            return cached != null ? CompletableFuture.completedFuture(rawBody(cached)) : raw.search(searchRequest(query));
+        });
+    }
+
+    public QueryCache.Stats queryCacheStats() {
+        return queries.stats();
+    }
+
+    private CompletableFuture<List<ElkEvent>> searchUncached(EventQuery query) {
+        return esAsync.search(searchRequest(query), ElkEvent.class)
+                .thenApply(response -> response.hits().hits().stream().map(hit -> event(query, hit)).toList());
+    }
+
+    /** The search behind both the bound and the raw path; the total is never read, so never counted. */
+    private SearchRequest searchRequest(EventQuery query) {
+        return SearchRequest.of(s -> s
+                .index(searchIndices(query))
+                .query(query.toQuery())
+                .source(sourceFilter(query))
+                .trackTotalHits(t -> t.enabled(false)));
+    }
+
+    /**
+     * Returns one page of {@code query}. A null cursor opens a new point-in-time;
+     * the returned cursor resumes after the last hit and is null once the walk is done.
+     * The point-in-time is closed after the last page, or right away when the first page
+     * fails; a walk abandoned half way keeps it open until {@code keepAlive} runs out.
+     */
+    public EventPage<ElkEvent> page(EventQuery query, Integer size, EventPage.Cursor cursor) throws IOException {
+        bootstrap.checkReady();
+        int pageSize = size == null ? paging.pageSize() : Math.min(Math.max(size, 1), paging.maxPageSize());
+        EventPage.Cursor from = cursor == null ? new EventPage.Cursor(openPit(query), -1) : cursor;
+
+        SearchResponse<ElkEvent> rsp;
+        try {
+            rsp = es.search(pitSearch(query, from, pageSize), ElkEvent.class);
+        } catch (IOException | RuntimeException e) {
+            if (cursor == null) {
+                closePit(from.pitId());     // nobody holds a cursor for it yet
+            }
+            throw e;
+        }
+        List<Hit<ElkEvent>> hits = rsp.hits().hits();
+        String pitId = rsp.pitId() != null ? rsp.pitId() : from.pitId();
+        List<ElkEvent> events = hits.stream().map(hit -> event(query, hit)).toList();
+        if (hits.size() < pageSize) {
+            closePit(pitId);
+            return new EventPage<>(events, null);
+        }
+        return new EventPage<>(events, new EventPage.Cursor(pitId, lastSortValue(hits)).encode());
+    }
+
+    /**
+     * Walks every hit of {@code query} through a point-in-time, handing the sink
+     * one page at a time while the next page is already being fetched.
+     */
+    public long stream(EventQuery query, PageSink sink) throws IOException {
+        bootstrap.checkReady();
+        int pageSize = paging.pageSize();
+        String pitId = openPit(query);
+        CompletableFuture<SearchResponse<ElkEvent>> next =
+                esAsync.search(pitSearch(query, new EventPage.Cursor(pitId, -1), pageSize), ElkEvent.class);
+        long total = 0;
+        try {
+            while (next != null) {
+                SearchResponse<ElkEvent> rsp = join(next);
+                List<Hit<ElkEvent>> hits = rsp.hits().hits();
+                if (rsp.pitId() != null) {
+                    pitId = rsp.pitId();
+                }
+                next = hits.size() < pageSize ? null : esAsync.search(
+                        pitSearch(query, new EventPage.Cursor(pitId, lastSortValue(hits)), pageSize), ElkEvent.class);
+
+                sink.accept(hits.stream().map(hit -> event(query, hit)).toList());
+                total += hits.size();
+            }
+        } finally {
+            if (next != null) {
+                next.cancel(true);
+            }
+            closePit(pitId);
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    public interface PageSink {
+        void accept(List<ElkEvent> page) throws IOException;
+    }
+
+    /**
+     * Fetches only the requested fields; null (the whole document) when none were asked for.
+     * {@code id} is never fetched from {@code _source}: {@link #event} takes it from the hit.
+     */
+    private static SourceConfig sourceFilter(EventQuery query) {
+        if (query.fields().isEmpty()) {
+            return null;
+        }
+        List<String> includes = query.fields().stream().filter(f -> !f.equals("id")).toList();
+        return includes.isEmpty()
+                ? SourceConfig.of(c -> c.fetch(false))
+                : SourceConfig.of(c -> c.filter(f -> f.includes(includes)));
+    }
+
+    /**
+     * The event of a search hit. Projected, its id is the hit's {@code _id}, when asked for,
+     * since a document stored without an id has none in {@code _source}.
+     */
+    private static ElkEvent event(EventQuery query, Hit<ElkEvent> hit) {
+        if (query.fields().isEmpty()) {
+            return hit.source();
+        }
+        String id = query.fields().contains("id") ? hit.id() : null;
+        ElkEvent s = hit.source();
+        return s == null
+                ? new ElkEvent(id, null, null, null, null, null, null)
+                : new ElkEvent(id, s.title(), s.eventType(), s.datetime(), s.place(), s.description(), s.subTopics());
+    }
+
+    private SearchRequest pitSearch(EventQuery query, EventPage.Cursor from, int size) {
+        return SearchRequest.of(s -> {
+            s.pit(p -> p.id(from.pitId()).keepAlive(k -> k.time(keepAlive)))
+                    .query(query.toQuery())
+                    .source(sourceFilter(query))
+                    .size(size)
+                    .sort(so -> so.field(f -> f.field("_shard_doc")))
+                    .trackTotalHits(t -> t.enabled(false));
+            if (from.after() >= 0) {
+                s.searchAfter(from.after());
+            }
+            return s;
+        });
+    }
+
+    private static long lastSortValue(List<Hit<ElkEvent>> hits) {
+        return hits.get(hits.size() - 1).sort().get(0).longValue();
+    }
+
+    private String openPit(EventQuery query) throws IOException {
+        return es.openPointInTime(o -> o.index(searchIndices(query)).keepAlive(k -> k.time(keepAlive))).id();
+    }
+
+    /** Partitions a date-bounded query can match; everything otherwise. */
+    private List<String> searchIndices(EventQuery query) {
+        if (partitions != null && query.kind() == EventQuery.Kind.AFTER_DATE_WITH_TITLE) {
+            return partitions.indicesAfter(query.params().get(0));
+        }
+        return List.of(INDEX);
+    }
+
+    private void closePit(String pitId) {
+        esAsync.closePointInTime(c -> c.id(pitId)).exceptionally(e -> {
+            LOG.debug("Could not close point-in-time: {}", e.getMessage());
+            return null;
+        });
+    }
+
+    static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Elasticsearch");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
     }
 
     public void bulkInit() throws IOException {
+        bootstrap.checkReady();
         BulkRequest.Builder b = new BulkRequest.Builder();
 
-        b.operations(op -> op.index(idx -> idx.index(INDEX).id("1").document(
+        b.operations(op -> op.index(idx -> idx.index(writeTarget).id("1").document(
                 new ElkEvent("1",
                         "Building Scalable Micro-services with Spring Boot",
                         EventType.WORKSHOP,
@@ -122,7 +661,7 @@ public class EventService {
                         "Hands-on Spring Boot workshop",
                         List.of("DDD","API Gateway","Observability","CI/CD")))));
 
-        b.operations(op -> op.index(idx -> idx.index(INDEX).id("2").document(
+        b.operations(op -> op.index(idx -> idx.index(writeTarget).id("2").document(
                 new ElkEvent("2",
                         "Distributed Systems 101",
                         EventType.TECH_TALK,
@@ -131,7 +670,7 @@ public class EventService {
                         "Intro to consistency models, CAP, etc.",
                         List.of("CAP theorem","Gossip","Consensus")))));
 
-        b.operations(op -> op.index(idx -> idx.index(INDEX).id("3").document(
+        b.operations(op -> op.index(idx -> idx.index(writeTarget).id("3").document(
                 new ElkEvent("3",
                         "Ansible Automation Workshop",
                         EventType.WORKSHOP,
@@ -140,7 +679,7 @@ public class EventService {
                         "Hands-on with Ansible playbooks",
                         List.of("YAML","Idempotence","Role reuse")))));
 
-        b.operations(op -> op.index(idx -> idx.index(INDEX).id("4").document(
+        b.operations(op -> op.index(idx -> idx.index(writeTarget).id("4").document(
                 new ElkEvent("4",
                         "Observability for Kubernetes",
                         EventType.TECH_TALK,
@@ -149,7 +688,7 @@ public class EventService {
                         "Logging, metrics, traces",
                         List.of("Prometheus","OpenTelemetry","Jaeger")))));
 
-        b.operations(op -> op.index(idx -> idx.index(INDEX).id("5").document(
+        b.operations(op -> op.index(idx -> idx.index(writeTarget).id("5").document(
                 new ElkEvent("5",
                         "Data Engineering Bootcamp",
                         EventType.WORKSHOP,
@@ -158,21 +697,163 @@ public class EventService {
                         "From raw data to pipelines",
                         List.of("Airflow","Spark","DeltaLake")))));
 
+        queries.invalidate();
         es.bulk(b.build());
+        queries.invalidate();
+    }
+
+    /**
+     * Imports NDJSON events from {@code ndjson}. With {@code fastIndexing}, refreshes
+     * and replicas are switched off for the duration and restored afterwards. Fast imports
+     * that overlap share one switch: the first one in saves and changes the settings, the
+     * last one out restores them.
+     */
+    public ImportSummary importEvents(InputStream ndjson, boolean fastIndexing) throws IOException {
+        bootstrap.checkReady();
+        if (fastIndexing) {
+            beginFastIndexing();
+        }
+        try {
+            return importer.run(ndjson, writeTarget);
+        } finally {
+            cache.invalidateAll();
+            queries.invalidate();
+            if (fastIndexing) {
+                endFastIndexing();
+            }
+        }
+    }
+
+    private void beginFastIndexing() throws IOException {
+        synchronized (fastIndexingLock) {
+            if (fastImports == 0) {
+                IndexSettings current = es.indices().getSettings(g -> g.index(writeTarget))
+                        .settings().values().iterator().next().settings();
+                savedSettings = current.index() != null ? current.index() : current;
+                es.indices().putSettings(p -> p.index(writeTarget).settings(s -> s
+                        .refreshInterval(t -> t.time("-1"))
+                        .numberOfReplicas("0")));
+            }
+            fastImports++;
+        }
+    }
+
+    /**
+     * Puts back what {@link #beginFastIndexing} found. A setting that was not set is reset
+     * with an explicit null, which the typed client cannot send, so this goes over the
+     * low-level client.
+     */
+    private void endFastIndexing() throws IOException {
+        synchronized (fastIndexingLock) {
+            if (--fastImports > 0) {
+                return;
+            }
+            ObjectNode settings = objectMapper().createObjectNode();
+            ObjectNode index = settings.putObject("index");
+            index.put("refresh_interval",
+                    savedSettings.refreshInterval() != null ? savedSettings.refreshInterval().time() : null);
+            index.put("number_of_replicas", savedSettings.numberOfReplicas());
+            savedSettings = null;
+            Request put = new Request("PUT", "/" + writeTarget + "/_settings");
+            put.setJsonEntity(settings.toString());
+            clients.restClient().performRequest(put);
+            es.indices().refresh(r -> r.index(writeTarget));
+        }
+    }
+
+    /** Bucket counts by type, top {@code topics} sub-topics and {@code interval}; see {@link EventStats}. */
+    public CompletableFuture<EventFacets> facetsAsync(boolean types, int topics, CalendarInterval interval) {
+        return bootstrap.whenReady(() -> stats.facets(types, topics, interval));
+    }
+
+    /** Titles starting with {@code prefix}, for type-ahead; see {@link TitleSuggester}. */
+    public CompletableFuture<List<TitleSuggestion>> suggestTitlesAsync(String prefix, Integer size) {
+        return bootstrap.whenReady(() -> suggester.suggest(prefix, size));
+    }
+
+    /** Starts deleting every match of {@code query} as a cluster task; returns the task id. */
+    public CompletableFuture<String> deleteByQueryAsync(EventQuery query, Float requestsPerSecond) throws IOException {
+        bootstrap.checkReady();
+        return byQuery.delete(searchIndices(query), query, requestsPerSecond);
+    }
+
+    /** Starts setting {@code fields} on every match of {@code query} as a cluster task; returns the task id. */
+    public CompletableFuture<String> updateByQueryAsync(EventQuery query, Map<String, Object> fields,
+                                                        Float requestsPerSecond) throws IOException {
+        bootstrap.checkReady();
+        if (partitions != null) {
+            // the matches may be in any partition, and fields may move their datetime
+            partitions.touchedAll();
+        }
+        return byQuery.update(searchIndices(query), query, fields, requestsPerSecond);
+    }
+
+    /** Whether {@code taskId} is a by-query task this service started; see {@link ByQueryTasks#owns}. */
+    public boolean ownsTask(String taskId) {
+        return byQuery.owns(taskId);
+    }
+
+    /** Progress of a by-query task started here. */
+    public CompletableFuture<TaskStatus> taskStatusAsync(String taskId) {
+        return byQuery.status(taskId);
+    }
+
+    public CompletableFuture<Void> cancelTaskAsync(String taskId) {
+        return byQuery.cancel(taskId).whenComplete((t, e) -> invalidateAll());
+    }
+
+    /**
+     * A by-query task finished, polled or not: documents kept changing after it started,
+     * so cached reads and the partition bounds are stale.
+     */
+    private void byQueryDone(String taskId) {
+        invalidateAll();
+        if (partitions != null) {
+            partitions.touchedAll();
+        }
+    }
+
+    private void invalidateAll() {
+        cache.invalidateAll();
+        queries.invalidate();
+    }
+
+    /** Dumps the whole index to gzip NDJSON, one file per slice. */
+    public ExportSummary exportEvents() throws IOException {
+        bootstrap.checkReady();
+        return exporter.export(INDEX);
     }
 
     public void createIndex() throws IOException {
-        if (es.indices().exists(e -> e.index(INDEX)).value()) {
-            es.indices().delete(d -> d.index(INDEX));
-        }
-        es.indices().create(c -> c.index(INDEX)
-                .mappings(m -> m
-                        .properties("title",      p -> p.text(t -> t))
-                        .properties("eventType",  p -> p.keyword(k -> k))
-                        .properties("datetime",   p -> p.date(d -> d))
-                        .properties("place",      p -> p.text(t -> t))
-                        .properties("description",p -> p.text(t -> t))
-                        .properties("subTopics",  p -> p.keyword(k -> k))));
+        if (partitions != null) {
+            partitions.reset();
+        } else {
+            if (es.indices().exists(e -> e.index(INDEX)).value()) {
+                es.indices().delete(d -> d.index(INDEX));
+            }
+            es.indices().create(c -> c.index(INDEX).mappings(EventMapping.mapping()));
+        }
+        cache.invalidateAll();
+        queries.invalidate();
+    }
+
+    /** Progress of the startup index bootstrap; backs the {@code events} health indicator. */
+    public IndexBootstrap bootstrap() {
+        return bootstrap;
+    }
+
+    /** Latest event per partition; empty when not partitioned. */
+    public Map<String, Instant> partitionBounds() {
+        return partitions == null ? Map.of() : partitions.bounds();
+    }
+
+    /** Runs the partition rollover / seal / retention check now. */
+    public Map<String, Instant> maintainPartitions() throws IOException {
+        if (partitions == null) {
+            return Map.of();
+        }
+        partitions.maintain();
+        return partitions.bounds();
     }
 
     public GetIndexResponse getIndex() throws IOException {
@@ -0,0 +1,100 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Aggregations over the events index. Every request has {@code size: 0}, so
+ * only buckets come back, and asks for the shard request cache, which serves
+ * repeats until the next refresh changes the shard.
+ */
+public class EventStats {
+
+    private static final String TYPES = "eventTypes";
+    private static final String TOPICS = "subTopics";
+    private static final String HISTOGRAM = "histogram";
+
+    private final ElasticsearchAsyncClient es;
+    private final String index;
+
+    public EventStats(ElasticsearchAsyncClient es, String index) {
+        this.es = es;
+        this.index = index;
+    }
+
+    /** Parses day, week, month, quarter or year (or 1d, 1w, 1M, 1q, 1y). */
+    public static CalendarInterval interval(String name) {
+        for (CalendarInterval i : CalendarInterval.values()) {
+            if (i.jsonValue().equals(name) || i.aliases() != null && Arrays.asList(i.aliases()).contains(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown interval '" + name + "'");
+    }
+
+    /**
+     * Runs the requested parts in one search; {@code topics <= 0} or a null
+     * interval leaves that part out.
+     */
+    public CompletableFuture<EventFacets> facets(boolean types, int topics, CalendarInterval interval) {
+        Map<String, Aggregation> aggs = new LinkedHashMap<>();
+        if (types) {
+            aggs.put(TYPES, Aggregation.of(a -> a.terms(t -> t.field("eventType").size(10))));
+        }
+        if (topics > 0) {
+            aggs.put(TOPICS, Aggregation.of(a -> a.terms(t -> t.field("subTopics").size(topics))));
+        }
+        if (interval != null) {
+            aggs.put(HISTOGRAM, Aggregation.of(a -> a.dateHistogram(h -> h
+                    .field("datetime")
+                    .calendarInterval(interval)
+                    .minDocCount(0))));
+        }
+        return es.search(s -> s
+                        .index(index)
+                        .size(0)
+                        .requestCache(true)
+                        .trackTotalHits(t -> t.enabled(true))
+                        .aggregations(aggs),
+                Void.class
+        ).thenApply(EventStats::facets);
+    }
+
+    private static EventFacets facets(SearchResponse<Void> rsp) {
+        Map<String, Aggregate> aggs = rsp.aggregations();
+        long total = rsp.hits().total() == null ? 0 : rsp.hits().total().value();
+        return new EventFacets(total, terms(aggs.get(TYPES)), terms(aggs.get(TOPICS)), histogram(aggs.get(HISTOGRAM)));
+    }
+
+    private static Map<String, Long> terms(Aggregate agg) {
+        if (agg == null) {
+            return null;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (StringTermsBucket b : agg.sterms().buckets().array()) {
+            counts.put(b.key().stringValue(), b.docCount());
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> histogram(Aggregate agg) {
+        if (agg == null) {
+            return null;
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (DateHistogramBucket b : agg.dateHistogram().buckets().array()) {
+            counts.put(b.keyAsString() != null ? b.keyAsString() : String.valueOf(b.key()), b.docCount());
+        }
+        return counts;
+    }
+}
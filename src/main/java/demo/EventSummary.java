@@ -0,0 +1,28 @@
+package demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Projection of an {@link ElkEvent} returned when a query asks for {@code ?fields=};
+ * fields that were not fetched are left out of the JSON rather than sent as null. The
+ * {@code id} is the hit's {@code _id}, not a copy from {@code _source}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventSummary(
+        String            id,
+        String            title,
+        EventType         eventType,
+        Instant           datetime,
+        String            place,
+        String            description,
+        List<String>      subTopics
+) {
+
+    static EventSummary of(ElkEvent ev) {
+        return new EventSummary(ev.id(), ev.title(), ev.eventType(), ev.datetime(),
+                ev.place(), ev.description(), ev.subTopics());
+    }
+}
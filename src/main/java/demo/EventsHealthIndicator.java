@@ -0,0 +1,34 @@
+package demo;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code events} health: out of service while the index bootstrap is still running, down
+ * with the last error while it is retrying, up once the index is in place. Part of the
+ * readiness group, so traffic is only routed here once writes can succeed.
+ */
+@Component
+public class EventsHealthIndicator implements HealthIndicator {
+
+    private final EventService events;
+
+    public EventsHealthIndicator(EventService events) {
+        this.events = events;
+    }
+
+    @Override
+    public Health health() {
+        IndexBootstrap bootstrap = events.bootstrap();
+        Health.Builder health;
+        if (bootstrap.ready()) {
+            health = Health.up().withDetail("readyAt", bootstrap.readyAt().toString());
+        } else if (bootstrap.lastError() != null) {
+            health = Health.down(bootstrap.lastError());
+        } else {
+            health = Health.outOfService();
+        }
+        return health.withDetail("attempts", bootstrap.attempts()).build();
+    }
+}
@@ -0,0 +1,25 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Tuning for the index export.
+ *
+ * @param directory  where each run creates its own sub-directory of slice files
+ * @param slices     parallel point-in-time slices, one output file each
+ * @param pageSize   hits fetched per slice and request
+ * @param keepAlive  how long the point-in-time stays open between two pages
+ * @param bufferSize direct buffer in front of each output file
+ */
+@ConfigurationProperties("events.export")
+public record ExportProperties(
+        @DefaultValue("export") String   directory,
+        @DefaultValue("4")      int      slices,
+        @DefaultValue("1000")   int      pageSize,
+        @DefaultValue("5m")     Duration keepAlive,
+        @DefaultValue("1MB")    DataSize bufferSize
+) { }
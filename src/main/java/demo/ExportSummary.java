@@ -0,0 +1,14 @@
+package demo;
+
+import java.util.List;
+
+/**
+ * Outcome of an index export; {@code bytes} is the compressed size on disk.
+ */
+public record ExportSummary(
+        long         documents,
+        long         bytes,
+        long         millis,
+        double       docsPerSecond,
+        List<String> files
+) { }
@@ -0,0 +1,92 @@
+package demo;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single-id lookups that arrive within a short window, or until a batch
+ * is full, into one multi-get and fans the results back to the waiting callers.
+ */
+public class GetCollapser implements AutoCloseable {
+
+    private final Function<Collection<String>, CompletableFuture<Map<String, Optional<ElkEvent>>>> mget;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final ScheduledExecutorService timer;
+
+    private Map<String, CompletableFuture<Optional<ElkEvent>>> batch;
+
+    public GetCollapser(GetProperties props,
+                        Function<Collection<String>, CompletableFuture<Map<String, Optional<ElkEvent>>>> mget) {
+        this.mget = mget;
+        this.windowNanos = props.collapseWindow().toNanos();
+        this.maxBatch = props.maxBatch();
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "get-collapser");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<Optional<ElkEvent>> get(String id) {
+        Map<String, CompletableFuture<Optional<ElkEvent>>> full = null;
+        CompletableFuture<Optional<ElkEvent>> result;
+        synchronized (this) {
+            if (batch == null) {
+                Map<String, CompletableFuture<Optional<ElkEvent>>> opened = new LinkedHashMap<>();
+                batch = opened;
+                timer.schedule(() -> flush(opened), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            result = batch.computeIfAbsent(id, k -> new CompletableFuture<>());
+            if (batch.size() >= maxBatch) {
+                full = batch;
+                batch = null;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    private void flush(Map<String, CompletableFuture<Optional<ElkEvent>>> expected) {
+        synchronized (this) {
+            if (batch != expected) {
+                return;             // already sent because it filled up
+            }
+            batch = null;
+        }
+        send(expected);
+    }
+
+    private void send(Map<String, CompletableFuture<Optional<ElkEvent>>> callers) {
+        CompletableFuture<Map<String, Optional<ElkEvent>>> result;
+        try {
+            result = mget.apply(callers.keySet());
+        } catch (RuntimeException e) {
+            // on the timer thread nobody else would ever complete them
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((found, err) -> callers.forEach((id, f) -> {
+            if (err != null) {
+                f.completeExceptionally(err);
+            } else if (found.containsKey(id)) {
+                f.complete(found.get(id));
+            } else {
+                f.completeExceptionally(new IllegalStateException("Multi-get failed for " + id));
+            }
+        }));
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Collapsing of single-id lookups into _mget.
+ *
+ * @param collapseWindow how long the first lookup of a batch waits for company; 0 disables collapsing
+ * @param maxBatch       ids that trigger an immediate _mget
+ */
+@ConfigurationProperties("events.get")
+public record GetProperties(
+        @DefaultValue("1ms") Duration collapseWindow,
+        @DefaultValue("64")  int      maxBatch
+) { }
@@ -1,30 +1,21 @@
 package demo;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.Conflicts;
+import co.elastic.clients.elasticsearch._types.SlicesCalculation;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
-import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.json.JsonData;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.ElasticsearchTransport;
-import co.elastic.clients.transport.rest_client.RestClientTransport;
 import co.elastic.clients.util.ObjectBuilder;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.ThreadContext;
-import org.elasticsearch.client.RestClient;
 
-import java.lang.management.ManagementFactory;
-import java.net.InetAddress;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.function.Function;
@@ -32,45 +23,41 @@ import java.util.function.Function;
 public class HighLevelExample {
 
   private static final String INDEX = "events";
-  private static final String USER = "elastic";
-  private static final String PASS = "changeme";
   private static final Logger LOG = LogManager.getLogger(HighLevelExample.class);
 
   // How often to generate events (milliseconds)
   private static final int DELAY_MS = 5000;
 
   /**
-   * Sets up Log4j context data that appears in every log message.
-   * This matches the pattern in log4j2.xml
+   * Without arguments, runs the demo loop below. With {@code load [--name=value ...]}
+   * runs the load generator instead; see {@link LoadOptions} for the options.
    */
-  private static void setupLogContext() {
-    ThreadContext.put("message_id", generateMessageId());
-    ThreadContext.put("uuid", UUID.randomUUID().toString().replace("-", ""));
-    ThreadContext.put("app_name", "event-service");
-    ThreadContext.put("app_version", "1.0.0-SNAPSHOT");
-
-    try {
-      ThreadContext.put("hostname", InetAddress.getLocalHost().getHostName());
-    } catch (Exception e) {
-      ThreadContext.put("hostname", "unknown");
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("load")) {
+      LoadOptions options;
+      try {
+        options = LoadOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+      } catch (IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        System.err.print(LoadOptions.USAGE);
+        System.exit(2);
+        return;
+      }
+      runLoad(options);
+      return;
     }
+    LogContext.begin(null);
+    LOG.info("Event service starting up");
 
-    String pidAtHost = ManagementFactory.getRuntimeMXBean().getName();
-    ThreadContext.put("process_id", pidAtHost.split("@")[0]);
+    try (ClientFactory clients = ClientFactory.fromEnvironment()) {
+      loop(createElasticsearchClient(clients));
+    }
   }
 
   /**
-   * Generates a simple message ID with timestamp
+   * Indexes, queries and deletes the sample events every {@link #DELAY_MS} until stopped
    */
-  private static String generateMessageId() {
-    return String.format("MSG-%d", System.currentTimeMillis());
-  }
-
-  public static void main(String[] args) throws Exception {
-    setupLogContext();
-    LOG.info("Event service starting up");
-
-    ElasticsearchClient es = createElasticsearchClient();
+  private static void loop(ElasticsearchClient es) throws Exception {
     LOG.info("Connected to Elasticsearch");
 
     // Create index if it doesn't exist
@@ -85,7 +72,7 @@ public class HighLevelExample {
       iteration++;
 
       // Reset log context for each iteration
-      setupLogContext();
+      LogContext.begin(null);
       LOG.info("Starting iteration {}", iteration);
 
       try {
@@ -105,30 +92,41 @@ public class HighLevelExample {
       LOG.info("Iteration {} complete, sleeping for {} seconds",
           iteration, DELAY_MS / 1000);
       Thread.sleep(DELAY_MS);
-      ThreadContext.clearAll();
+      LogContext.end();
     }
   }
 
   /**
-   * Creates the Elasticsearch client with authentication
+   * Drives Elasticsearch or the REST API at a fixed rate and writes latency percentiles
    */
-  private static ElasticsearchClient createElasticsearchClient() {
-    BasicCredentialsProvider credProvider = new BasicCredentialsProvider();
-    credProvider.setCredentials(AuthScope.ANY,
-        new UsernamePasswordCredentials(USER, PASS));
-
-    RestClient restClient = RestClient.builder(
-            new HttpHost("localhost", 9200, "http"))
-        .setHttpClientConfigCallback(httpClient ->
-            httpClient.setDefaultCredentialsProvider(credProvider))
-        .build();
-
-    ObjectMapper mapper = new ObjectMapper()
-        .registerModule(new JavaTimeModule())
-        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private static void runLoad(LoadOptions options) throws Exception {
+    ClientFactory clients = options.target().equals("es") ? ClientFactory.fromEnvironment() : null;
+    try {
+      LoadGenerator.Target target;
+      if (clients != null) {
+        ElasticsearchClient es = createElasticsearchClient(clients);
+        createIndexIfNeeded(es);
+        target = LoadGenerator.Target.elasticsearch(es, INDEX);
+      } else {
+        target = LoadGenerator.Target.rest(options.url(), EventService.objectMapper());
+      }
+      LogContext.begin(null);
+      new LoadGenerator(options, target, createSampleEvents()).run();
+    } finally {
+      LogContext.end();
+      if (clients != null) {
+        clients.close();
+      }
+    }
+  }
 
+  /**
+   * Creates the Elasticsearch client on {@code clients}, with the service's object mapper;
+   * closing {@code clients} closes it, and the sniffer with it
+   */
+  private static ElasticsearchClient createElasticsearchClient(ClientFactory clients) {
     ElasticsearchTransport transport =
-        new RestClientTransport(restClient, new JacksonJsonpMapper(mapper));
+        clients.transport(new JacksonJsonpMapper(EventService.objectMapper()));
 
     return new ElasticsearchClient(transport);
   }
@@ -143,14 +141,7 @@ public class HighLevelExample {
       LOG.info("Creating index '{}'", INDEX);
       es.indices().create(c -> c
           .index(INDEX)
-          .mappings(m -> m
-              .properties("title", p -> p.text(t -> t))
-              .properties("eventType", p -> p.keyword(k -> k))
-              .properties("datetime", p -> p.date(d -> d))
-              .properties("place", p -> p.text(t -> t))
-              .properties("description", p -> p.text(t -> t))
-              .properties("subTopics", p -> p.keyword(k -> k))
-          )
+          .mappings(EventMapping.mapping())
       );
       LOG.info("Index '{}' created successfully", INDEX);
     } else {
@@ -275,35 +266,23 @@ public class HighLevelExample {
       throws Exception {
     LOG.info("Attempting to delete events with title: {}", title);
 
-    // Find events to delete
-    SearchResponse<ElkEvent> searchResult = es.search(s -> s
-            .index(INDEX)
-            .query(q -> q.term(t -> t
-                .field("title.keyword")
-                .value(v -> v.stringValue(title))
-            )),
-        ElkEvent.class
+    // title is a text field: match_phrase finds the whole title, and the
+    // deletion runs sliced on the cluster instead of round-tripping every id
+    DeleteByQueryResponse deleted = es.deleteByQuery(d -> d
+        .index(INDEX)
+        .query(q -> q.matchPhrase(m -> m
+            .field("title")
+            .query(title)
+        ))
+        .slices(s -> s.computed(SlicesCalculation.Auto))
+        .conflicts(Conflicts.Proceed)
+        .refresh(true)
     );
 
-    List<Hit<ElkEvent>> hits = searchResult.hits().hits();
-
-    if (hits.isEmpty()) {
+    if (deleted.deleted() == null || deleted.deleted() == 0) {
       LOG.info("No events found with title: {}", title);
       return;
     }
-
-    // Build bulk delete request
-    BulkRequest.Builder bulkDelete = new BulkRequest.Builder();
-    for (Hit<ElkEvent> hit : hits) {
-      bulkDelete.operations(op -> op
-          .delete(d -> d
-              .index(INDEX)
-              .id(hit.id())
-          )
-      );
-    }
-
-    es.bulk(bulkDelete.build());
-    LOG.info("Deleted {} events with title: {}", hits.size(), title);
+    LOG.info("Deleted {} events with title: {}", deleted.deleted(), title);
   }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Tuning for POST /bulk-import.
+ *
+ * @param maxOperations  documents per bulk request
+ * @param maxBytes       serialized size per bulk request
+ * @param maxInFlight    bulk requests on the wire at the same time
+ * @param retries        retries of an item rejected with 429
+ * @param initialBackoff base of the jittered exponential delay between those retries
+ * @param maxDocument    longest NDJSON line read; a longer one is counted as failed and skipped
+ */
+@ConfigurationProperties("events.import")
+public record ImportProperties(
+        @DefaultValue("1000")  int      maxOperations,
+        @DefaultValue("10MB")  DataSize maxBytes,
+        @DefaultValue("4")     int      maxInFlight,
+        @DefaultValue("5")     int      retries,
+        @DefaultValue("200ms") Duration initialBackoff,
+        @DefaultValue("1MB")   DataSize maxDocument
+) { }
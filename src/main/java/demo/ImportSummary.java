@@ -0,0 +1,17 @@
+package demo;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import; {@code errors} holds the first few item failures.
+ * {@code read} counts non-blank lines, and {@code failed} includes the lines that
+ * were not an event as well as the items Elasticsearch rejected.
+ */
+public record ImportSummary(
+        long         read,
+        long         indexed,
+        long         failed,
+        long         millis,
+        double       docsPerSecond,
+        List<String> errors
+) { }
@@ -0,0 +1,123 @@
+package demo;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Puts the index (or partition template and aliases) in place, either inline or on a
+ * background thread that retries with exponential backoff until Elasticsearch answers.
+ * Until it has succeeded writes are refused, so nothing reaches Elasticsearch that would
+ * auto-create the index with a dynamic mapping, and so are reads, which would only find
+ * no index.
+ */
+public class IndexBootstrap implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(IndexBootstrap.class);
+
+    /** One bootstrap attempt; must be safe to repeat after a partial failure. */
+    public interface Step {
+        void run() throws IOException;
+    }
+
+    private final Step step;
+    private final StartupProperties props;
+    private final ScheduledExecutorService retries;
+    private volatile boolean ready;
+    private volatile int attempts;
+    private volatile Exception lastError;
+    private volatile Instant readyAt;
+
+    public IndexBootstrap(Step step, StartupProperties props) {
+        this.step = step;
+        this.props = props;
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "index-bootstrap");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Runs the first attempt: inline (throwing its failure) or in the background. */
+    public void start() throws IOException {
+        if (!props.asyncBootstrap()) {
+            attempt();
+            if (lastError instanceof IOException e) {
+                throw e;
+            } else if (lastError != null) {
+                throw (RuntimeException) lastError;
+            }
+            return;
+        }
+        retries.execute(() -> retry(props.initialBackoff().toMillis()));
+    }
+
+    private void retry(long backoffMs) {
+        attempt();
+        if (!ready) {
+            long next = Math.min(backoffMs * 2, props.maxBackoff().toMillis());
+            LOG.warn("Index bootstrap attempt {} failed, retrying in {}ms: {}", attempts, backoffMs, lastError.toString());
+            retries.schedule(() -> retry(next), backoffMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void attempt() {
+        attempts++;
+        try {
+            step.run();
+            lastError = null;
+            readyAt = Instant.now();
+            ready = true;
+            LOG.info("Index bootstrap done after {} attempt(s)", attempts);
+        } catch (IOException | RuntimeException e) {
+            lastError = e;
+        }
+    }
+
+    public boolean ready() {
+        return ready;
+    }
+
+    public int attempts() {
+        return attempts;
+    }
+
+    /** Why the last attempt failed; null once ready or before the first attempt finished. */
+    public Exception lastError() {
+        return lastError;
+    }
+
+    /** When bootstrap succeeded; null until then. */
+    public Instant readyAt() {
+        return readyAt;
+    }
+
+    /** Refuses reads and writes until the index is in place. */
+    public void checkReady() throws IndexNotReadyException {
+        if (!ready) {
+            throw new IndexNotReadyException("Index bootstrap not finished");
+        }
+    }
+
+    /** {@link #checkReady} for calls that answer with a future: a failed one instead of a throw. */
+    public <T> CompletableFuture<T> whenReady(Supplier<CompletableFuture<T>> call) {
+        try {
+            checkReady();
+        } catch (IndexNotReadyException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return call.get();
+    }
+
+    @Override
+    public void close() {
+        retries.shutdownNow();
+    }
+}
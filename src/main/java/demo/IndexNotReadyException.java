@@ -0,0 +1,17 @@
+package demo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+/**
+ * Thrown for reads and writes that arrive before the index bootstrap has put the index in place.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IndexNotReadyException extends IOException {
+
+    public IndexNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package demo;
+
+import co.elastic.clients.transport.BackoffPolicy;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: retry {@code n} waits a random time between 0 and
+ * {@code initial * 2^n}, so clients rejected together don't all come back together.
+ */
+public class JitteredBackoff extends BackoffPolicy {
+
+    private final long initialMillis;
+    private final int retries;
+
+    public JitteredBackoff(long initialMillis, int retries) {
+        this.initialMillis = initialMillis;
+        this.retries = retries;
+    }
+
+    /** Delay before retry {@code attempt}, counting from 0. */
+    public long delay(int attempt) {
+        long ceiling = initialMillis << Math.min(attempt, 20);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public int retries() {
+        return retries;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int attempt;
+
+            @Override
+            public boolean hasNext() {
+                return attempt < retries;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Only " + retries + " retries");
+                }
+                return delay(attempt++);
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One journaled write. Replaying it more than once is harmless: index and delete
+ * address the document by id, and an update merges the same partial document again.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JournalEntry(Op op, String id, ElkEvent doc) {
+
+    public enum Op { INDEX, UPDATE, DELETE }
+}
@@ -0,0 +1,37 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Write-behind mode: store / update / delete are appended to a local journal and
+ * acknowledged, and a background replayer bulk-indexes the journal into Elasticsearch.
+ *
+ * @param enabled        journal writes instead of sending them through the bulk pipeline
+ * @param directory      where the segment files and the replay checkpoint live
+ * @param segmentSize    size of each memory-mapped segment file; a single entry must fit
+ * @param maxSize        journal bytes not yet replayed before writes are refused
+ * @param fsync          always (every append), interval or never (left to the OS)
+ * @param fsyncInterval  how often mapped segments are forced to disk with fsync=interval
+ * @param batchSize      entries replayed per bulk request
+ * @param initialBackoff wait after a failed replay, doubled up to {@code maxBackoff}
+ * @param maxBackoff     cap on the wait between replay attempts
+ */
+@ConfigurationProperties("events.journal")
+public record JournalProperties(
+        @DefaultValue("false")   boolean  enabled,
+        @DefaultValue("journal") String   directory,
+        @DefaultValue("64MB")    DataSize segmentSize,
+        @DefaultValue("1GB")     DataSize maxSize,
+        @DefaultValue("interval") Fsync   fsync,
+        @DefaultValue("100ms")   Duration fsyncInterval,
+        @DefaultValue("500")     int      batchSize,
+        @DefaultValue("200ms")   Duration initialBackoff,
+        @DefaultValue("30s")     Duration maxBackoff
+) {
+
+    public enum Fsync { ALWAYS, INTERVAL, NEVER }
+}
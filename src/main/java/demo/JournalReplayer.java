@@ -0,0 +1,161 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Drains a {@link WriteJournal} into Elasticsearch on one background thread: reads up to
+ * {@code batchSize} entries from the checkpoint, sends them as one bulk and moves the
+ * checkpoint past them once every item is either done or failed for good. A failed
+ * request or a 429 / 5xx item sends the whole batch again after a backoff, which is
+ * safe because entries are idempotent; other item failures are logged and dropped, as
+ * are corrupt journal entries.
+ */
+public class JournalReplayer implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(JournalReplayer.class);
+
+    /** Turns a batch into bulk operations, e.g. routing each to the index holding its id. */
+    public interface Resolver {
+        List<BulkOperation> operations(List<JournalEntry> entries) throws IOException;
+    }
+
+    private final ElasticsearchClient es;
+    private final WriteJournal journal;
+    private final JournalProperties props;
+    private final Resolver resolver;
+    private final Consumer<List<JournalEntry>> onReplayed;
+    private final ObjectReader reader = EventService.objectMapper().readerFor(JournalEntry.class);
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder corrupt = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public JournalReplayer(ElasticsearchClient es, WriteJournal journal, JournalProperties props,
+                           Resolver resolver, Consumer<List<JournalEntry>> onReplayed) {
+        this.es = es;
+        this.journal = journal;
+        this.props = props;
+        this.resolver = resolver;
+        this.onReplayed = onReplayed;
+        this.thread = new Thread(this::run, "journal-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("events.journal.depth", journal, WriteJournal::depth)
+                .description("Journal bytes not yet replayed").baseUnit("bytes").register(registry);
+        Gauge.builder("events.journal.pending", journal, WriteJournal::pending)
+                .description("Journal entries not yet replayed").register(registry);
+        Gauge.builder("events.journal.replay.lag", journal, j -> {
+                    long oldest = j.oldestPendingMillis();
+                    return oldest == 0 ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+                })
+                .description("Age of the oldest entry not yet replayed").baseUnit("seconds").register(registry);
+        FunctionCounter.builder("events.journal.replayed", replayed, LongAdder::sum).register(registry);
+        FunctionCounter.builder("events.journal.dropped", dropped, LongAdder::sum).register(registry);
+        FunctionCounter.builder("events.journal.corrupt", corrupt, LongAdder::sum)
+                .description("Journal spans skipped for a bad length or crc").register(registry);
+        FunctionCounter.builder("events.journal.replay.failures", failures, LongAdder::sum).register(registry);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join(props.maxBackoff().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long backoff = props.initialBackoff().toMillis();
+        while (!closed) {
+            try {
+                List<WriteJournal.Record> batch = journal.read(journal.checkpoint(), props.batchSize());
+                if (batch.isEmpty()) {
+                    journal.awaitAppend(journal.checkpoint(), 1000);
+                    continue;
+                }
+                replay(batch);
+                backoff = props.initialBackoff().toMillis();
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                LOG.warn("Journal replay failed, retrying in {}ms: {}", backoff, e.toString());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, props.maxBackoff().toMillis());
+            }
+        }
+    }
+
+    private void replay(List<WriteJournal.Record> batch) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>(batch.size());
+        for (WriteJournal.Record r : batch) {
+            if (r.payload() == null) {
+                corrupt.increment();
+                continue;
+            }
+            try {
+                entries.add(reader.readValue(r.payload()));
+            } catch (IOException e) {
+                dropped.increment();
+                LOG.error("Dropping unreadable journal entry at {}: {}", r.position(), e.getMessage());
+            }
+        }
+        if (!entries.isEmpty()) {
+            List<BulkOperation> operations = resolver.operations(entries);
+            BulkResponse response = es.bulk(b -> b.operations(operations));
+            if (response.errors()) {
+                checkItems(response.items());
+            }
+        }
+        journal.commit(batch.getLast().next(), batch.size());
+        replayed.add(entries.size());
+        onReplayed.accept(entries);
+    }
+
+    /** Throws if any item is worth retrying; counts and logs the ones that never will succeed. */
+    private void checkItems(List<BulkResponseItem> items) throws IOException {
+        List<BulkResponseItem> permanent = new ArrayList<>();
+        for (BulkResponseItem item : items) {
+            if (item.error() == null) {
+                continue;
+            }
+            if (item.status() == 429 || item.status() >= 500) {
+                throw new IOException("Bulk " + item.operationType().jsonValue() + " of " + item.id()
+                        + " failed [" + item.status() + "]: " + item.error().type());
+            }
+            permanent.add(item);
+        }
+        for (BulkResponseItem item : permanent) {
+            dropped.increment();
+            LOG.error("Dropping journaled {} of {} [{}]: {} {}", item.operationType().jsonValue(), item.id(),
+                    item.status(), item.error().type(), item.error().reason());
+        }
+    }
+}
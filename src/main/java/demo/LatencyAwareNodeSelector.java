@@ -0,0 +1,151 @@
+package demo;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpCoreContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps an exponentially weighted moving average of each node's time to first
+ * response byte. Requests skip dedicated masters and any node slower than
+ * {@code slowNodeFactor} times the fastest one. Only nodes with {@code minSamples}
+ * responses take part in that comparison, and a node is not ejected when that would
+ * leave fewer than {@code minLiveNodes} in rotation. An ejected node is kept out for
+ * {@code ejectFor} and then re-admitted with a clean slate, so it needs
+ * {@code minSamples} fresh responses before it can be ejected again.
+ * The client round-robins over the nodes that remain.
+ */
+public class LatencyAwareNodeSelector implements NodeSelector {
+
+    private static final String STARTED = LatencyAwareNodeSelector.class.getName() + ".started";
+    private static final double ALPHA = 0.2;
+
+    private final double slowNodeFactor;
+    private final long ejectNanos;
+    private final int minSamples;
+    private final int minLiveNodes;
+    private final Map<String, Stats> nodes = new ConcurrentHashMap<>();
+
+    public LatencyAwareNodeSelector(double slowNodeFactor, long ejectNanos, int minSamples, int minLiveNodes) {
+        this.slowNodeFactor = slowNodeFactor;
+        this.ejectNanos = ejectNanos;
+        this.minSamples = minSamples;
+        this.minLiveNodes = minLiveNodes;
+    }
+
+    /** Stamps each outgoing request; register on the HTTP client together with {@link #responseInterceptor()}. */
+    public HttpRequestInterceptor requestInterceptor() {
+        return (request, context) -> context.setAttribute(STARTED, System.nanoTime());
+    }
+
+    public HttpResponseInterceptor responseInterceptor() {
+        return (response, context) -> {
+            Object started = context.getAttribute(STARTED);
+            Object target = context.getAttribute(HttpCoreContext.HTTP_TARGET_HOST);
+            if (started instanceof Long start && target instanceof HttpHost host) {
+                record(host, System.nanoTime() - start);
+            }
+        };
+    }
+
+    void record(HttpHost host, long nanos) {
+        nodes.computeIfAbsent(key(host), k -> new Stats()).add(nanos);
+    }
+
+    @Override
+    public void select(Iterable<Node> candidates) {
+        NodeSelector.SKIP_DEDICATED_MASTERS.select(candidates);
+
+        long now = System.nanoTime();
+        // one decision at a time, so two requests cannot both eject down past the floor
+        synchronized (this) {
+            double fastest = Double.MAX_VALUE;
+            int total = 0;
+            int live = 0;
+            for (Node node : candidates) {
+                total++;
+                Stats s = nodes.get(key(node.getHost()));
+                if (s == null || !s.ejected(now)) {
+                    live++;
+                    if (s != null && s.samples() >= minSamples) {
+                        fastest = Math.min(fastest, s.ewma());
+                    }
+                }
+            }
+            int floor = Math.min(minLiveNodes, total);
+            if (live < floor) {
+                // nodes left the cluster since the ejections; fall back to all of them
+                return;
+            }
+            double limit = fastest * slowNodeFactor;
+            Iterator<Node> it = candidates.iterator();
+            while (it.hasNext()) {
+                Stats s = nodes.get(key(it.next().getHost()));
+                if (s == null) {
+                    continue;
+                }
+                if (s.ejected(now)) {
+                    it.remove();
+                } else if (live > floor && s.samples() >= minSamples && s.ewma() > limit) {
+                    s.eject(now + ejectNanos);
+                    live--;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /** Moving average per node in milliseconds; negative for ejected or not yet measured nodes. */
+    public Map<String, Double> latencies() {
+        long now = System.nanoTime();
+        Map<String, Double> out = new TreeMap<>();
+        nodes.forEach((host, s) -> out.put(host, s.ejected(now) || s.ewma() < 0 ? -1.0 : s.ewma() / 1_000_000.0));
+        return out;
+    }
+
+    private static String key(HttpHost host) {
+        return host.getHostName() + ":" + host.getPort();
+    }
+
+    private static final class Stats {
+        private double ewma = -1;
+        private int samples;
+        private long ejectedUntil;
+        private boolean ejected;
+
+        synchronized void add(long nanos) {
+            ewma = ewma < 0 ? nanos : ewma + ALPHA * (nanos - ewma);
+            samples++;
+        }
+
+        synchronized double ewma() {
+            return ewma;
+        }
+
+        synchronized int samples() {
+            return samples;
+        }
+
+        /** True while ejected; on expiry the average is reset so the node is probed afresh. */
+        synchronized boolean ejected(long now) {
+            if (ejected && now - ejectedUntil >= 0) {
+                ejected = false;
+                ewma = -1;
+                samples = 0;
+            }
+            return ejected;
+        }
+
+        synchronized void eject(long until) {
+            ejected = true;
+            ejectedUntil = until;
+        }
+    }
+}
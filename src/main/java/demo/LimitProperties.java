@@ -0,0 +1,42 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Admission control in front of Elasticsearch: reads and writes each get a concurrency
+ * limit that grows while round trips stay fast and shrinks when they slow down or the
+ * cluster pushes back; requests over it are answered 503 straight away.
+ *
+ * @param enabled      put the limits in front of the client at all; off by default, since a
+ *                     cold service starting at the initial limits sheds a burst with 503s
+ *                     before they have grown, so size them from measured concurrency first
+ * @param readInitial  starting limit for searches and gets
+ * @param readMax      upper bound of the read limit
+ * @param writeInitial starting limit for bulks and other writes
+ * @param writeMax     upper bound of the write limit
+ * @param min          lower bound of both limits
+ * @param rttTolerance how far a round trip may exceed the long-term average before the limit shrinks
+ * @param backoffRatio factor applied to a limit on a 429, 503, 504 or timeout
+ * @param smoothing    weight of each new estimate in the limit, between 0 and 1
+ * @param retryAfter   Retry-After sent with a 503
+ * @param bulkRetries  retries of a bulk rejected as a whole, locally or with a 429
+ * @param bulkBackoff  base of the jittered exponential delay between those retries
+ */
+@ConfigurationProperties("events.limit")
+public record LimitProperties(
+        @DefaultValue("false") boolean  enabled,
+        @DefaultValue("20")    int      readInitial,
+        @DefaultValue("200")   int      readMax,
+        @DefaultValue("10")    int      writeInitial,
+        @DefaultValue("50")    int      writeMax,
+        @DefaultValue("2")     int      min,
+        @DefaultValue("1.5")   double   rttTolerance,
+        @DefaultValue("0.9")   double   backoffRatio,
+        @DefaultValue("0.2")   double   smoothing,
+        @DefaultValue("1s")    Duration retryAfter,
+        @DefaultValue("5")     int      bulkRetries,
+        @DefaultValue("100ms") Duration bulkBackoff
+) { }
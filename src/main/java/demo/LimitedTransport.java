@@ -0,0 +1,223 @@
+package demo;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportException;
+import co.elastic.clients.transport.TransportOptions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.client.ResponseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Puts an {@link AdaptiveLimit} in front of every search, get and write the typed client
+ * sends. Over the limit a request fails with {@link OverloadedException} without leaving
+ * the JVM; admin calls such as index creation or task lookups pass untouched.
+ *
+ * A bulk refused as a whole, by the limit or by a 429, is sent again after a jittered
+ * exponential delay: nothing of it was applied, and the pipelines that send bulks would
+ * otherwise fail every operation in it. Items refused one by one are retried by the
+ * ingesters themselves.
+ */
+public class LimitedTransport implements ElasticsearchTransport {
+
+    private static final Logger LOG = LogManager.getLogger(LimitedTransport.class);
+    private static final String BULK = "es/bulk";
+    private static final Set<String> READS = Set.of("es/search", "es/msearch", "es/get", "es/mget",
+            "es/count", "es/scroll", "es/open_point_in_time");
+    private static final Set<String> WRITES = Set.of(BULK, "es/index", "es/create", "es/update",
+            "es/delete", "es/delete_by_query", "es/update_by_query", "es/reindex");
+
+    private final ElasticsearchTransport delegate;
+    private final AdaptiveLimit reads;
+    private final AdaptiveLimit writes;
+    private final JitteredBackoff backoff;
+    private final LongAdder bulkRetries = new LongAdder();
+
+    public LimitedTransport(ElasticsearchTransport delegate, AdaptiveLimit reads, AdaptiveLimit writes,
+                            LimitProperties props) {
+        this.delegate = delegate;
+        this.reads = reads;
+        this.writes = writes;
+        this.backoff = new JitteredBackoff(props.bulkBackoff().toMillis(), props.bulkRetries());
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        reads.bindTo(registry);
+        writes.bindTo(registry);
+        FunctionCounter.builder("events.limit.bulk.retries", bulkRetries, LongAdder::sum)
+                .description("Bulks sent again after being refused as a whole").register(registry);
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options)
+            throws IOException {
+        AdaptiveLimit limit = limitFor(endpoint);
+        if (limit == null) {
+            return delegate.performRequest(request, endpoint, options);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return perform(limit, request, endpoint, options);
+            } catch (IOException | RuntimeException e) {
+                if (!retry(endpoint, e, attempt)) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(backoff.delay(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while backing off a bulk");
+                }
+            }
+        }
+    }
+
+    private <RequestT, ResponseT, ErrorT> ResponseT perform(
+            AdaptiveLimit limit, RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+            TransportOptions options) throws IOException {
+        limit.acquire();
+        long start = System.nanoTime();
+        boolean dropped = false;
+        try {
+            return delegate.performRequest(request, endpoint, options);
+        } catch (IOException | RuntimeException e) {
+            dropped = pushedBack(e);
+            throw e;
+        } finally {
+            limit.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+        AdaptiveLimit limit = limitFor(endpoint);
+        if (limit == null) {
+            return delegate.performRequestAsync(request, endpoint, options);
+        }
+        CompletableFuture<ResponseT> result = new CompletableFuture<>();
+        attemptAsync(limit, request, endpoint, options, 0, result);
+        return result;
+    }
+
+    private <RequestT, ResponseT, ErrorT> void attemptAsync(
+            AdaptiveLimit limit, RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+            TransportOptions options, int attempt, CompletableFuture<ResponseT> result) {
+        CompletableFuture<ResponseT> call = send(limit, request, endpoint, options);
+        call.whenComplete((rsp, e) -> {
+            if (e == null) {
+                result.complete(rsp);
+            } else if (!result.isDone() && retry(endpoint, e, attempt)) {
+                CompletableFuture.delayedExecutor(backoff.delay(attempt), TimeUnit.MILLISECONDS)
+                        .execute(() -> attemptAsync(limit, request, endpoint, options, attempt + 1, result));
+            } else {
+                result.completeExceptionally(unwrap(e));
+            }
+        });
+        result.whenComplete((rsp, e) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+    }
+
+    private <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> send(
+            AdaptiveLimit limit, RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint,
+            TransportOptions options) {
+        try {
+            limit.acquire();
+        } catch (OverloadedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<ResponseT> call = delegate.performRequestAsync(request, endpoint, options);
+        // the slot is free again before anyone waiting on the result runs
+        CompletableFuture<ResponseT> released = new CompletableFuture<>();
+        call.whenComplete((rsp, e) -> {
+            limit.release(System.nanoTime() - start, e != null && pushedBack(e));
+            if (e == null) {
+                released.complete(rsp);
+            } else {
+                released.completeExceptionally(e);
+            }
+        });
+        released.whenComplete((rsp, e) -> {
+            if (released.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return released;
+    }
+
+    private AdaptiveLimit limitFor(Endpoint<?, ?, ?> endpoint) {
+        if (READS.contains(endpoint.id())) {
+            return reads;
+        }
+        return WRITES.contains(endpoint.id()) ? writes : null;
+    }
+
+    /** Only whole bulks are retried here, and only when nothing of them was applied. */
+    private boolean retry(Endpoint<?, ?, ?> endpoint, Throwable e, int attempt) {
+        Throwable cause = unwrap(e);
+        if (!BULK.equals(endpoint.id()) || attempt >= backoff.retries()
+                || !(cause instanceof OverloadedException || status(cause) == 429)) {
+            return false;
+        }
+        bulkRetries.increment();
+        LOG.debug("Bulk refused ({}), retry {} of {}", cause.getMessage(), attempt + 1, backoff.retries());
+        return true;
+    }
+
+    /** Whether a failure means the cluster is past its capacity rather than the request being wrong. */
+    private static boolean pushedBack(Throwable e) {
+        Throwable cause = unwrap(e);
+        int status = status(cause);
+        return status == 429 || status == 503 || status == 504 || cause instanceof SocketTimeoutException;
+    }
+
+    private static int status(Throwable e) {
+        if (e instanceof ElasticsearchException es) {
+            return es.status();
+        }
+        if (e instanceof TransportException te) {
+            return te.statusCode();
+        }
+        if (e instanceof ResponseException re) {
+            return re.getResponse().getStatusLine().getStatusCode();
+        }
+        return 0;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return delegate.jsonpMapper();
+    }
+
+    @Override
+    public TransportOptions options() {
+        return delegate.options();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,231 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator. Operations are started on a fixed schedule, each
+ * on its own virtual thread, whether or not earlier ones have finished. Response
+ * time is measured from the scheduled start rather than the actual one, so a
+ * stalled target shows up in the percentiles instead of silently lowering the
+ * rate (coordinated omission). Service time, measured from the actual start, is
+ * reported next to it. Once {@code maxOutstanding} operations are in flight, sends
+ * that come due are skipped and counted instead of waited for, so the schedule keeps
+ * its rate rather than turning into a closed loop. A skipped send still goes into the
+ * response times, from its scheduled start to the next completion, the earliest it
+ * could have started, so skipping does not hide the stall that caused it.
+ */
+public class LoadGenerator {
+
+    private static final Logger LOG = LogManager.getLogger(LoadGenerator.class);
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    public enum Op { INDEX, GET, SEARCH, UPDATE, DELETE }
+
+    /** The system under load; one call per operation. */
+    public interface Target {
+
+        void run(Op op, String id, ElkEvent ev) throws Exception;
+
+        static Target elasticsearch(ElasticsearchClient es, String index) {
+            return (op, id, ev) -> {
+                switch (op) {
+                    case INDEX -> es.index(i -> i.index(index).id(id).document(ev));
+                    case GET -> es.get(g -> g.index(index).id(id), ElkEvent.class);
+                    case SEARCH -> es.search(s -> s.index(index)
+                            .query(q -> q.match(m -> m.field("title").query(ev.title()))), ElkEvent.class);
+                    case UPDATE -> es.update(u -> u.index(index).id(id).doc(ev).docAsUpsert(true), ElkEvent.class);
+                    case DELETE -> es.delete(d -> d.index(index).id(id));
+                }
+            };
+        }
+
+        static Target rest(URI base, ObjectMapper json) {
+            HttpClient http = HttpClient.newHttpClient();
+            return (op, id, ev) -> {
+                HttpRequest.Builder req = switch (op) {
+                    case INDEX -> post(base.resolve("/store"), json.writeValueAsBytes(ev));
+                    case GET -> HttpRequest.newBuilder(base.resolve("/get/" + id)).GET();
+                    case SEARCH -> HttpRequest.newBuilder(base.resolve("/query/title/"
+                            + URLEncoder.encode(ev.title(), StandardCharsets.UTF_8).replace("+", "%20"))).GET();
+                    case UPDATE -> post(base.resolve("/update/" + id), json.writeValueAsBytes(ev));
+                    case DELETE -> HttpRequest.newBuilder(base.resolve("/delete/" + id)).DELETE();
+                };
+                HttpResponse<Void> rsp = http.send(req.build(), HttpResponse.BodyHandlers.discarding());
+                if (rsp.statusCode() >= 400 && rsp.statusCode() != 404) {
+                    throw new IOException(op + " returned " + rsp.statusCode());
+                }
+            };
+        }
+
+        private static HttpRequest.Builder post(URI uri, byte[] body) {
+            return HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        }
+    }
+
+    private final LoadOptions options;
+    private final Target target;
+    private final Op[] schedule;
+    private final List<ElkEvent> events;
+    private final Map<Op, Histogram> response = new EnumMap<>(Op.class);
+    private final Map<Op, Histogram> service = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder> errors = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder> skipped = new EnumMap<>(Op.class);
+    /** Measured sends skipped since the last completion. */
+    private final Queue<Skipped> overdue = new ConcurrentLinkedQueue<>();
+
+    private record Skipped(Op op, long intended) { }
+
+    public LoadGenerator(LoadOptions options, Target target, List<ElkEvent> events) {
+        this.options = options;
+        this.target = target;
+        this.events = events;
+        this.schedule = options.mix().entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Op[]::new);
+        if (schedule.length == 0) {
+            throw new IllegalArgumentException("Operation mix is empty");
+        }
+        for (Op op : Op.values()) {
+            response.put(op, new ConcurrentHistogram(HIGHEST_MICROS, 3));
+            service.put(op, new ConcurrentHistogram(HIGHEST_MICROS, 3));
+            errors.put(op, new LongAdder());
+            skipped.put(op, new LongAdder());
+        }
+    }
+
+    /** Runs warm-up and measurement, then writes the report file and returns its summary table. */
+    public String run() throws IOException {
+        double interval = 1e9 / options.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        Semaphore outstanding = new Semaphore(options.maxOutstanding());
+        LOG.info("Load against {} at {} ops/s: {} warm-up, {} measured",
+                options.target(), options.rate(), options.warmup(), options.duration());
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * interval);
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Op op = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+                if (!outstanding.tryAcquire()) {
+                    if (intended >= measureFrom) {
+                        skipped.get(op).increment();
+                        overdue.add(new Skipped(op, intended));
+                    }
+                    continue;
+                }
+                workers.execute(() -> {
+                    try {
+                        execute(op, intended, intended >= measureFrom);
+                    } finally {
+                        outstanding.release();
+                    }
+                });
+            }
+        }
+
+        String summary = summary();
+        try (PrintStream out = new PrintStream(Files.newOutputStream(options.out()), false, StandardCharsets.UTF_8)) {
+            out.println("# " + Instant.now() + " " + options);
+            out.println(summary);
+            for (Op op : Op.values()) {
+                if (response.get(op).getTotalCount() > 0) {
+                    out.println("## " + op + " response time (ms)");
+                    response.get(op).outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+        LOG.info("Load report written to {}\n{}", options.out(), summary);
+        return summary;
+    }
+
+    private void execute(Op op, long intended, boolean measured) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String id = "load-" + random.nextInt(options.ids());
+        ElkEvent sample = events.get(random.nextInt(events.size()));
+        ElkEvent ev = new ElkEvent(id, sample.title(), sample.eventType(), sample.datetime(),
+                sample.place(), sample.description(), sample.subTopics());
+        long started = System.nanoTime();
+        try {
+            target.run(op, id, ev);
+        } catch (Exception e) {
+            if (measured) {
+                errors.get(op).increment();
+            }
+            LOG.debug("{} {} failed: {}", op, id, e.getMessage());
+        }
+        long done = System.nanoTime();
+        if (measured) {
+            response.get(op).recordValue(Math.min((done - intended) / 1000, HIGHEST_MICROS));
+            service.get(op).recordValue(Math.min((done - started) / 1000, HIGHEST_MICROS));
+        }
+        for (Skipped s; (s = overdue.poll()) != null; ) {
+            response.get(s.op()).recordValue(Math.clamp((done - s.intended()) / 1000, 0, HIGHEST_MICROS));
+        }
+    }
+
+    private String summary() {
+        double seconds = options.duration().toNanos() / 1e9;
+        StringBuilder sb = new StringBuilder(String.format("%-7s %9s %7s %9s %9s",
+                "op", "count", "errors", "skipped", "ops/s"));
+        for (double p : PERCENTILES) {
+            sb.append(String.format(" %9s", "p" + p));
+        }
+        sb.append(String.format(" %9s %9s%n", "max", "svc p99"));
+        for (Op op : Op.values()) {
+            Histogram h = response.get(op);
+            if (h.getTotalCount() == 0 && skipped.get(op).sum() == 0) {
+                continue;
+            }
+            // the response times include the skipped sends; count and ops/s are only those sent
+            long sent = h.getTotalCount() - skipped.get(op).sum();
+            sb.append(String.format("%-7s %9d %7d %9d %9.1f", op, sent, errors.get(op).sum(),
+                    skipped.get(op).sum(), sent / seconds));
+            for (double p : PERCENTILES) {
+                sb.append(String.format(" %9.3f", h.getValueAtPercentile(p) / 1000.0));
+            }
+            sb.append(String.format(" %9.3f %9.3f%n", h.getMaxValue() / 1000.0,
+                    service.get(op).getValueAtPercentile(99) / 1000.0));
+        }
+        return sb.toString();
+    }
+}
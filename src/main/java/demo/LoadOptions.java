@@ -0,0 +1,143 @@
+package demo;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Command-line options of the load generator, given as {@code --name=value}.
+ *
+ * @param target         {@code es} to call Elasticsearch directly, {@code rest} to go through the EventController
+ * @param url            base URL of the REST API when {@code target=rest}
+ * @param rate           operations started per second, independent of how fast they complete
+ * @param warmup         phase run before measuring
+ * @param duration       measured phase
+ * @param mix            relative weight of each operation
+ * @param ids            number of distinct document ids the operations pick from
+ * @param maxOutstanding operations in flight; a send that comes due beyond this is skipped and counted
+ * @param out            report file
+ */
+public record LoadOptions(
+        String                         target,
+        URI                            url,
+        double                         rate,
+        Duration                       warmup,
+        Duration                       duration,
+        Map<LoadGenerator.Op, Integer> mix,
+        int                            ids,
+        int                            maxOutstanding,
+        Path                           out
+) {
+
+    public static final String USAGE = """
+            usage: load [--name=value ...]
+              --target=es|rest            call Elasticsearch directly or go through the REST API (es)
+              --url=URL                   base URL of the REST API (http://localhost:8080)
+              --rate=N                    operations started per second (200)
+              --warmup=DURATION           phase before measuring, e.g. 10s (10s)
+              --duration=DURATION         measured phase (60s)
+              --mix=op:weight,...         ops: index, get, search, update, delete
+                                          (index:20,get:50,search:20,update:5,delete:5)
+              --ids=N                     distinct document ids (10000)
+              --max-outstanding=N         operations in flight before sends are skipped (10000)
+              --out=FILE                  report file (load-report.txt)
+            """;
+
+    /**
+     * Parses {@code --name=value} arguments; see {@link #USAGE}.
+     *
+     * @throws IllegalArgumentException naming the offending argument
+     */
+    public static LoadOptions parse(String[] args) {
+        String target = "es";
+        URI url = URI.create("http://localhost:8080");
+        double rate = 200;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(60);
+        Map<LoadGenerator.Op, Integer> mix = parseMix("index:20,get:50,search:20,update:5,delete:5");
+        int ids = 10_000;
+        int maxOutstanding = 10_000;
+        Path out = Path.of("load-report.txt");
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException(arg + ": expected --name=value");
+            }
+            String value = arg.substring(eq + 1);
+            try {
+                switch (arg.substring(2, eq)) {
+                    case "target" -> target = value;
+                    case "url" -> url = URI.create(value);
+                    case "rate" -> rate = positive(Double.parseDouble(value));
+                    case "warmup" -> warmup = positive(DurationStyle.detectAndParse(value));
+                    case "duration" -> duration = positive(DurationStyle.detectAndParse(value));
+                    case "mix" -> mix = parseMix(value);
+                    case "ids" -> ids = (int) positive(Integer.parseInt(value));
+                    case "max-outstanding" -> maxOutstanding = (int) positive(Integer.parseInt(value));
+                    case "out" -> out = Path.of(value);
+                    default -> throw new IllegalArgumentException("unknown option");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(arg + ": not a number", e);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(arg + ": " + e.getMessage(), e);
+            }
+        }
+        if (!target.equals("es") && !target.equals("rest")) {
+            throw new IllegalArgumentException("--target=" + target + ": expected es or rest");
+        }
+        return new LoadOptions(target, url, rate, warmup, duration, mix, ids, maxOutstanding, out);
+    }
+
+    private static double positive(double value) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException("must be positive");
+        }
+        return value;
+    }
+
+    private static Duration positive(Duration value) {
+        if (value.isNegative() || value.isZero()) {
+            throw new IllegalArgumentException("must be positive");
+        }
+        return value;
+    }
+
+    /** Parses {@code index:20,get:50,...}; operations left out get no traffic. */
+    private static Map<LoadGenerator.Op, Integer> parseMix(String spec) {
+        Map<LoadGenerator.Op, Integer> mix = new EnumMap<>(LoadGenerator.Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":", -1);
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("expected op:weight but got '" + part.trim() + "'");
+            }
+            String name = kv[0].strip();
+            LoadGenerator.Op op = Arrays.stream(LoadGenerator.Op.values())
+                    .filter(o -> o.name().equalsIgnoreCase(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("unknown operation '" + name + "', expected one of "
+                            + Arrays.toString(LoadGenerator.Op.values()).toLowerCase(Locale.ROOT)));
+            int weight;
+            try {
+                weight = Integer.parseInt(kv[1].strip());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("weight of " + name + " is not a number: '" + kv[1] + "'");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("weight of " + name + " is negative");
+            }
+            mix.put(op, weight);
+        }
+        if (mix.values().stream().allMatch(w -> w == 0)) {
+            throw new IllegalArgumentException("every weight is 0");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,39 @@
+package demo;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+
+/**
+ * Copies {@code log4j2.*} keys of the Spring environment into system properties before
+ * Boot configures logging, so a profile's application-*.properties can carry Log4j
+ * settings that log4j2.component.properties would apply to every profile. Log4j reads
+ * them when the configuration that needs them starts; a -D flag still wins.
+ * Registered through META-INF/spring.factories.
+ */
+public class Log4jPropertiesPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    static final String PREFIX = "log4j2.";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment env, SpringApplication application) {
+        for (PropertySource<?> source : env.getPropertySources()) {
+            if (source instanceof EnumerablePropertySource<?> enumerable) {
+                for (String name : enumerable.getPropertyNames()) {
+                    if (name.startsWith(PREFIX) && System.getProperty(name) == null) {
+                        System.setProperty(name, env.getProperty(name));
+                    }
+                }
+            }
+        }
+    }
+
+    /** After the config data post-processor, so profile-specific files are already loaded. */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
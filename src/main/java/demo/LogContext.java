@@ -0,0 +1,124 @@
+package demo;
+
+import org.apache.logging.log4j.ThreadContext;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Log context shared by the REST service and the command line examples.
+ *
+ * Host, process and application fields never change, so they are resolved once
+ * and added to every log event by {@link StaticContextDataProvider}. Only the
+ * per-request fields go into the {@link ThreadContext}.
+ */
+public final class LogContext {
+
+    public static final String MESSAGE_ID = "message_id";
+    public static final String UUID = "uuid";
+
+    static final Map<String, String> STATIC_FIELDS = Map.of(
+            "app_name",    System.getProperty("app.name", "event-service"),
+            "app_version", System.getProperty("app.version", "1.0.0-SNAPSHOT"),
+            "hostname",    resolveHostname(),
+            "process_id",  Long.toString(ProcessHandle.current().pid()));
+
+    private static final String MESSAGE_PREFIX = "MSG-";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final long NODE = ThreadLocalRandom.current().nextLong();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private LogContext() { }
+
+    /**
+     * Cheap, unique-per-JVM id in the 32 hex digits of the random UUIDs it replaced:
+     * a random node half chosen at startup and a counter half.
+     */
+    public static String nextCorrelationId() {
+        return id("", SEQUENCE.incrementAndGet());
+    }
+
+    /**
+     * Starts the log context of a unit of work, reusing {@code correlationId}
+     * when the caller sent one. The message id is {@code MSG-} and the same kind
+     * of id, so it stays unique even when the correlation id is shared.
+     */
+    public static String begin(String correlationId) {
+        long sequence = SEQUENCE.incrementAndGet();
+        String id = correlationId == null ? id("", sequence) : correlationId;
+        ThreadContext.put(MESSAGE_ID, id(MESSAGE_PREFIX, sequence));
+        ThreadContext.put(UUID, id);
+        return id;
+    }
+
+    private static String id(String prefix, long sequence) {
+        int start = prefix.length();
+        char[] chars = new char[start + 32];
+        prefix.getChars(0, start, chars, 0);
+        for (int i = 0; i < 16; i++) {
+            int shift = 60 - 4 * i;
+            chars[start + i] = HEX[(int) (NODE >>> shift) & 0xF];
+            chars[start + 16 + i] = HEX[(int) (sequence >>> shift) & 0xF];
+        }
+        return new String(chars);
+    }
+
+    public static void end() {
+        ThreadContext.clearMap();
+    }
+
+    /**
+     * Runs {@code task} with the caller's log context, wherever it executes.
+     */
+    public static Runnable propagate(Runnable task) {
+        Map<String, String> captured = ThreadContext.getImmutableContext();
+        if (captured.isEmpty()) {
+            return task;
+        }
+        return () -> {
+            Map<String, String> previous = ThreadContext.getImmutableContext();
+            ThreadContext.putAll(captured);
+            try {
+                task.run();
+            } finally {
+                ThreadContext.clearMap();
+                ThreadContext.putAll(previous);
+            }
+        };
+    }
+
+    /**
+     * {@link #propagate(Runnable)} for continuations of a future.
+     */
+    public static <T, R> Function<T, R> propagate(Function<T, R> fn) {
+        Map<String, String> captured = ThreadContext.getImmutableContext();
+        if (captured.isEmpty()) {
+            return fn;
+        }
+        return value -> {
+            Map<String, String> previous = ThreadContext.getImmutableContext();
+            ThreadContext.putAll(captured);
+            try {
+                return fn.apply(value);
+            } finally {
+                ThreadContext.clearMap();
+                ThreadContext.putAll(previous);
+            }
+        };
+    }
+
+    private static String resolveHostname() {
+        String env = System.getenv("HOSTNAME");
+        if (env != null && !env.isBlank()) {
+            return env;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
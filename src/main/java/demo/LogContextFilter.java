@@ -0,0 +1,74 @@
+package demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sets up the log context of every request and echoes its correlation id.
+ * An incoming X-Correlation-ID, X-Request-ID or W3C traceparent is reused.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LogContextFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Correlation-ID";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String id = (String) request.getAttribute(HEADER);      // set on the initial dispatch
+        if (id == null) {
+            id = LogContext.begin(incomingId(request));
+            request.setAttribute(HEADER, id);
+            response.setHeader(HEADER, id);
+        } else {
+            LogContext.begin(id);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            LogContext.end();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private static String incomingId(HttpServletRequest request) {
+        String id = request.getHeader(HEADER);
+        if (id == null) {
+            id = request.getHeader("X-Request-ID");
+        }
+        if (id == null) {
+            String traceparent = request.getHeader("traceparent");     // version-traceid-parentid-flags
+            if (traceparent != null && traceparent.length() >= 35) {
+                id = traceparent.substring(3, 35);
+            }
+        }
+        return id != null && isSafe(id) ? id : null;
+    }
+
+    /** Keeps client-supplied ids short and free of characters that would break the log line. */
+    private static boolean isSafe(String id) {
+        if (id.isEmpty() || id.length() > 64) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == ':')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
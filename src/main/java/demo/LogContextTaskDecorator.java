@@ -0,0 +1,17 @@
+package demo;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carries the request's log context into work handed to Spring's task
+ * executors, including MVC async processing and virtual-thread executors.
+ */
+@Component
+public class LogContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return LogContext.propagate(runnable);
+    }
+}
@@ -0,0 +1,35 @@
+package demo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code events.logs.*} counters of the {@link ElasticsearchAppender}s in the logging
+ * configuration, tagged by appender name; nothing when logs are not shipped directly.
+ * Appenders created after binding, by a reconfiguration, are registered as they appear.
+ */
+@Component
+public class LogShippingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ElasticsearchAppender.whenCounted((name, c) -> {
+            counter(registry, "events.logs.events", name, "shipped", c.shipped);
+            counter(registry, "events.logs.events", name, "buffer_full", c.bufferFull);
+            counter(registry, "events.logs.events", name, "rejected", c.rejected);
+            counter(registry, "events.logs.events", name, "spilled", c.spilled);
+            counter(registry, "events.logs.events", name, "lost", c.lost);
+            counter(registry, "events.logs.bulks", name, "sent", c.bulks);
+            counter(registry, "events.logs.bulks", name, "failed", c.bulkFailures);
+        });
+    }
+
+    private static void counter(MeterRegistry registry, String meter, String appender, String result, LongAdder n) {
+        FunctionCounter.builder(meter, n, LongAdder::sum)
+                .tag("appender", appender).tag("result", result).register(registry);
+    }
+}
@@ -0,0 +1,17 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Elasticsearch call metrics.
+ *
+ * @param slo latency buckets published alongside the percentile histogram of each call
+ */
+@ConfigurationProperties("events.metrics")
+public record MetricsProperties(
+        @DefaultValue({"5ms", "10ms", "25ms", "50ms", "100ms", "250ms", "500ms", "1s"}) List<Duration> slo
+) { }
@@ -0,0 +1,29 @@
+package demo;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.io.IOException;
+
+/**
+ * Answers requests shed by the concurrency limits or the write queue, or sent before the
+ * index is in place, with a 503 that tells the client when to come back.
+ */
+@RestControllerAdvice
+public class OverloadAdvice {
+
+    private final String retryAfter;
+
+    public OverloadAdvice(LimitProperties props) {
+        this.retryAfter = Long.toString(Math.max(1, props.retryAfter().toSeconds()));
+    }
+
+    @ExceptionHandler({OverloadedException.class, WriteRejectedException.class, IndexNotReadyException.class})
+    public void overloaded(IOException e, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+    }
+}
@@ -0,0 +1,17 @@
+package demo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request to Elasticsearch while its concurrency limit is used up.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OverloadedException extends IOException {
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
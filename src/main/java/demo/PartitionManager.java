@@ -0,0 +1,307 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
+import co.elastic.clients.elasticsearch.indices.RolloverResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time partitions behind two aliases. A composable template gives every
+ * {@code <alias>-*} index the mapping and the read alias; the write alias points at
+ * the newest partition and is rolled over by age, primary size, document count and
+ * at each period boundary. Older partitions are sealed (read-only, force-merged to
+ * one segment) and eventually deleted, all from a background check.
+ * <p>
+ * The check also records each partition's latest {@code datetime}, so a search
+ * for events after a date only goes to partitions that can hold one.
+ */
+public class PartitionManager implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(PartitionManager.class);
+
+    private final ElasticsearchClient es;
+    private final PartitionProperties props;
+    private final String readAlias;
+    private final String writeAlias;
+    private final String firstIndex;
+    private final DateTimeFormatter periodName;
+    private final ScheduledExecutorService scheduler;
+
+    /** Latest {@code datetime} per partition as of the last check, epoch millis. */
+    private volatile Map<String, Long> latest = Map.of();
+    /** The partition the write alias points at, as of the last check or rollover; null until known. */
+    private volatile String current;
+    /**
+     * Partitions written to since their bounds were last measured, with the
+     * {@link System#nanoTime} of the latest write; their recorded bounds may be stale.
+     */
+    private final Map<String, Long> touched = new ConcurrentHashMap<>();
+
+    public PartitionManager(ElasticsearchClient es, PartitionProperties props, String readAlias) {
+        this.es = es;
+        this.props = props;
+        this.readAlias = readAlias;
+        this.writeAlias = readAlias + "-write";
+        String rounding;
+        String format;
+        switch (props.period()) {
+            case "day" -> { rounding = "d"; format = "yyyy.MM.dd"; }
+            case "month" -> { rounding = "M"; format = "yyyy.MM"; }
+            case "year" -> { rounding = "y"; format = "yyyy"; }
+            default -> throw new IllegalArgumentException("events.partition.period must be day, month or year");
+        }
+        this.firstIndex = "<" + readAlias + "-{now/" + rounding + "{" + format + "}}-000001>";
+        this.periodName = DateTimeFormatter.ofPattern(format).withZone(ZoneOffset.UTC);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "partition-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public String writeAlias() {
+        return writeAlias;
+    }
+
+    /** Puts the template and, if there is no write alias yet, creates the first partition behind it. */
+    public void bootstrap() throws IOException {
+        putTemplate();
+        if (!es.indices().existsAlias(a -> a.name(writeAlias)).value()) {
+            if (!es.indices().existsAlias(a -> a.name(readAlias)).value()
+                    && es.indices().exists(e -> e.index(readAlias)).value()) {
+                throw new IllegalStateException("'" + readAlias + "' is a plain index; export it, "
+                        + "recreate it with POST /create-index and import the export to partition it");
+            }
+            es.indices().create(c -> c.index(firstIndex).aliases(writeAlias, a -> a.isWriteIndex(true)));
+            LOG.info("Created first partition behind {}", writeAlias);
+        }
+        refreshBounds();
+        long every = props.checkEvery().toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, every, every, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes every partition (and a plain index of the read alias' name) and bootstraps afresh.
+     * Puts the template itself: it may run before {@link #bootstrap} got that far, e.g. to
+     * replace a plain index, and a partition created without it has neither mapping nor alias.
+     */
+    public void reset() throws IOException {
+        putTemplate();
+        List<String> doomed = new ArrayList<>(partitions().keySet());
+        if (!es.indices().existsAlias(a -> a.name(readAlias)).value()
+                && es.indices().exists(e -> e.index(readAlias)).value()) {
+            doomed.add(readAlias);
+        }
+        if (!doomed.isEmpty()) {
+            es.indices().delete(d -> d.index(doomed));
+        }
+        latest = Map.of();
+        current = null;
+        es.indices().create(c -> c.index(firstIndex).aliases(writeAlias, a -> a.isWriteIndex(true)));
+        refreshBounds();
+    }
+
+    private void putTemplate() throws IOException {
+        es.indices().putIndexTemplate(t -> t
+                .name(readAlias)
+                .indexPatterns(readAlias + "-*")
+                .priority(100L)
+                .template(m -> m
+                        .mappings(EventMapping.mapping())
+                        .aliases(readAlias, a -> a)));
+    }
+
+    /**
+     * Notes a write to {@code index} so it is searched regardless of its recorded bounds.
+     * Call it before the write and again once it is acknowledged: the bounds check only
+     * forgets a write acknowledged before it started measuring.
+     */
+    public void touched(String index) {
+        touched.put(index, System.nanoTime());
+    }
+
+    /** Notes writes to every partition, e.g. an update-by-query that may move any {@code datetime}. */
+    public void touchedAll() {
+        long now = System.nanoTime();
+        latest.keySet().forEach(index -> touched.put(index, now));
+    }
+
+    /**
+     * The indices a search for events after {@code from} has to cover: partitions whose
+     * latest event is later, partitions written since the last check, and the current
+     * write partition. Not the write alias itself: it stays on the partitions it rolled
+     * over from, so searching it would search them all. Falls back to the read alias
+     * when {@code from} is not a date or the bounds or the write partition are not known yet.
+     */
+    public List<String> indicesAfter(String from) {
+        Map<String, Long> bounds = latest;
+        String write = current;
+        Long millis = parse(from);
+        if (millis == null || bounds.isEmpty() || write == null) {
+            return List.of(readAlias);
+        }
+        List<String> indices = new ArrayList<>();
+        bounds.forEach((index, max) -> {
+            if (!index.equals(write) && (max > millis || touched.containsKey(index))) {
+                indices.add(index);
+            }
+        });
+        indices.add(write);
+        return indices;
+    }
+
+    private static Long parse(String date) {
+        try {
+            return Instant.parse(date).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDate.parse(date).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e2) {
+                return null;
+            }
+        }
+    }
+
+    /** Latest event per partition as of the last check; null for empty partitions. */
+    public Map<String, Instant> bounds() {
+        Map<String, Instant> out = new TreeMap<>();
+        latest.forEach((index, max) -> out.put(index, max == Long.MIN_VALUE ? null : Instant.ofEpochMilli(max)));
+        return out;
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            LOG.warn("Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /** Rolls over, seals and expires partitions as configured, then refreshes the date bounds. */
+    public synchronized void maintain() throws IOException {
+        String current = writeIndex();
+        boolean newPeriod = current != null
+                && !current.startsWith(readAlias + "-" + periodName.format(Instant.now()) + "-");
+        RolloverResponse rollover = es.indices().rollover(r -> {
+            r.alias(writeAlias);
+            if (!newPeriod) {
+                r.conditions(c -> {
+                    c.maxAge(t -> t.time(props.maxAge().toSeconds() + "s"))
+                            .maxPrimaryShardSize(props.maxPrimarySize().toBytes() + "b");
+                    if (props.maxDocs() > 0) {
+                        c.maxDocs(props.maxDocs());
+                    }
+                    return c;
+                });
+            }
+            return r;
+        });
+        if (rollover.rolledOver()) {
+            // searches cover the new partition from here on, before it has any bounds
+            this.current = rollover.newIndex();
+            LOG.info("Rolled {} over from {} to {}", writeAlias, rollover.oldIndex(), rollover.newIndex());
+            // reads look up ids that a search cannot find in the write partition;
+            // make everything written to the old one searchable right away
+            es.indices().refresh(r -> r.index(rollover.oldIndex()));
+        }
+
+        String write = writeIndex();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, IndexState> p : partitions().entrySet()) {
+            String index = p.getKey();
+            IndexSettings s = settings(p.getValue());
+            if (index.equals(write) || s == null || s.creationDate() == null) {
+                continue;
+            }
+            long age = now - s.creationDate();
+            if (!props.retention().isZero() && age > props.retention().toMillis()) {
+                es.indices().delete(d -> d.index(index));
+                LOG.info("Deleted expired partition {}", index);
+            } else if (!props.sealAfter().isZero() && age > props.sealAfter().toMillis()
+                    && (s.blocks() == null || !Boolean.TRUE.equals(s.blocks().write()))) {
+                es.indices().putSettings(u -> u.index(index).settings(x -> x.blocks(b -> b.write(true))));
+                es.indices().forcemerge(f -> f.index(index).maxNumSegments(1L).waitForCompletion(false));
+                LOG.info("Sealed partition {}", index);
+            }
+        }
+        refreshBounds();
+    }
+
+    private static IndexSettings settings(IndexState state) {
+        IndexSettings s = state.settings();
+        return s == null || s.index() == null ? s : s.index();
+    }
+
+    private Map<String, IndexState> partitions() throws IOException {
+        return es.indices().get(g -> g.index(readAlias + "-*")).indices();
+    }
+
+    private String writeIndex() throws IOException {
+        if (!es.indices().existsAlias(a -> a.name(writeAlias)).value()) {
+            return null;
+        }
+        for (var e : es.indices().getAlias(a -> a.name(writeAlias)).aliases().entrySet()) {
+            var alias = e.getValue().aliases().get(writeAlias);
+            if (alias != null && Boolean.TRUE.equals(alias.isWriteIndex())) {
+                return e.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the current write partition and measures the latest {@code datetime} of
+     * every partition. Partitions written to are refreshed first, so the aggregation sees
+     * every acknowledged write; only the marks of writes acknowledged before that are
+     * dropped afterwards.
+     */
+    void refreshBounds() throws IOException {
+        long measuring = System.nanoTime();
+        String write = writeIndex();
+        if (write != null) {
+            current = write;
+        }
+        List<String> dirty = List.copyOf(touched.keySet());
+        if (!dirty.isEmpty()) {
+            es.indices().refresh(r -> r.index(dirty).ignoreUnavailable(true));
+        }
+        SearchResponse<Void> rsp = es.search(s -> s
+                        .index(readAlias)
+                        .size(0)
+                        .aggregations("partitions", a -> a
+                                .terms(t -> t.field("_index").size(10_000))
+                                .aggregations("latest", l -> l.max(m -> m.field("datetime")))),
+                Void.class);
+        Map<String, Long> bounds = new ConcurrentHashMap<>();
+        for (StringTermsBucket b : rsp.aggregations().get("partitions").sterms().buckets().array()) {
+            Double max = b.aggregations().get("latest").max().value();
+            bounds.put(b.key().stringValue(), max == null ? Long.MIN_VALUE : max.longValue());
+        }
+        latest = bounds;
+        touched.values().removeIf(at -> at - measuring < 0);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
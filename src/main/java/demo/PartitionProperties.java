@@ -0,0 +1,32 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Time-partitioned storage: {@code events-<period>-NNNNNN} indices created from a
+ * template, written through the {@code events-write} alias and read through {@code events}.
+ *
+ * @param enabled         partitioned instead of the single {@code events} index
+ * @param period          day, month or year; the date in new partition names
+ * @param maxAge          roll over once the write partition is this old
+ * @param maxPrimarySize  roll over once a primary shard of the write partition is this big
+ * @param maxDocs         roll over at this many documents; 0 for no limit
+ * @param sealAfter       force-merge and make read-only partitions this much older than their creation; 0 never
+ * @param retention       delete partitions this much older than their creation; 0 keeps them
+ * @param checkEvery      how often rollover, sealing, retention and the partition date bounds are checked
+ */
+@ConfigurationProperties("events.partition")
+public record PartitionProperties(
+        @DefaultValue("false") boolean  enabled,
+        @DefaultValue("month") String   period,
+        @DefaultValue("30d")   Duration maxAge,
+        @DefaultValue("50GB")  DataSize maxPrimarySize,
+        @DefaultValue("0")     long     maxDocs,
+        @DefaultValue("90d")   Duration sealAfter,
+        @DefaultValue("0s")    Duration retention,
+        @DefaultValue("5m")    Duration checkEvery
+) { }
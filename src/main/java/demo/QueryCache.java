@@ -0,0 +1,164 @@
+package demo;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caches search results by normalized query. Every write bumps a generation
+ * counter; a result stamped with an older generation is only served while it is
+ * younger than the staleness bound. Concurrent misses for one query share a search,
+ * and so do the callers that find the same stale result: the first one swaps the entry
+ * for a pending refresh, the others wait on that refresh.
+ */
+public class QueryCache {
+
+    private final AsyncCache<EventQuery, Entry> cache;
+    private final boolean enabled;
+    private final long maxStaleness;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<EventQuery.Kind, LongAdder> hits = new EnumMap<>(EventQuery.Kind.class);
+    private final Map<EventQuery.Kind, LongAdder> misses = new EnumMap<>(EventQuery.Kind.class);
+
+    public QueryCache(QueryCacheProperties props) {
+        this.enabled = props.maxBytes().toBytes() > 0;
+        this.maxStaleness = props.maxStaleness().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(props.maxBytes().toBytes(), 1))
+                .weigher((EventQuery q, Entry e) -> e.weight())
+                .expireAfterWrite(props.ttl())
+                .buildAsync();
+        for (EventQuery.Kind kind : EventQuery.Kind.values()) {
+            hits.put(kind, new LongAdder());
+            misses.put(kind, new LongAdder());
+        }
+    }
+
+    /** Marks every cached result as written-over. */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    public CompletableFuture<List<ElkEvent>> get(EventQuery query,
+                                                 Function<EventQuery, CompletableFuture<List<ElkEvent>>> search) {
+        if (!enabled) {
+            return search.apply(query);
+        }
+        EventQuery key = query.normalized();
+        long gen = generation.get();
+        boolean[] loaded = {false};
+        CompletableFuture<Entry> cached = cache.get(key, (k, executor) -> {
+            loaded[0] = true;
+            return load(k, gen, search);
+        });
+        if (loaded[0]) {
+            misses.get(key.kind()).increment();
+            return cached.thenApply(Entry::events);
+        }
+        return cached.thenCompose(e -> {
+            if (e.generation() == gen || System.nanoTime() - e.created() <= maxStaleness) {
+                hits.get(key.kind()).increment();
+                return CompletableFuture.completedFuture(e.events());
+            }
+            CompletableFuture<Entry> fresh = new CompletableFuture<>();
+            if (!cache.asMap().replace(key, cached, fresh)) {
+                // someone else got here first; judge whatever is cached now
+                return get(query, search);
+            }
+            misses.get(key.kind()).increment();
+            try {
+                load(key, gen, search).whenComplete((r, t) -> {
+                    if (t != null) {
+                        fresh.completeExceptionally(t);
+                    } else {
+                        fresh.complete(r);
+                    }
+                });
+            } catch (RuntimeException t) {
+                fresh.completeExceptionally(t);
+            }
+            return fresh.thenApply(Entry::events);
+        });
+    }
+
+    /**
+     * The cached result of {@code query} when one is loaded and may still be served, or
+     * null; counted as a hit or a miss, but a miss loads nothing.
+     */
+    public List<ElkEvent> getIfFresh(EventQuery query) {
+        if (!enabled) {
+            return null;
+        }
+        EventQuery key = query.normalized();
+        CompletableFuture<Entry> cached = cache.getIfPresent(key);
+        Entry e = cached != null && cached.isDone() && !cached.isCompletedExceptionally() ? cached.join() : null;
+        if (e == null || (e.generation() != generation.get() && System.nanoTime() - e.created() > maxStaleness)) {
+            misses.get(key.kind()).increment();
+            return null;
+        }
+        hits.get(key.kind()).increment();
+        return e.events();
+    }
+
+    private static CompletableFuture<Entry> load(EventQuery query, long gen,
+                                                 Function<EventQuery, CompletableFuture<List<ElkEvent>>> search) {
+        return search.apply(query).thenApply(events -> new Entry(gen, System.nanoTime(), events, weigh(events)));
+    }
+
+    /** Rough retained size: object headers plus two bytes per character. */
+    private static int weigh(List<ElkEvent> events) {
+        long bytes = 64;
+        for (ElkEvent ev : events) {
+            bytes += 128 + chars(ev.id()) + chars(ev.title()) + chars(ev.place()) + chars(ev.description());
+            if (ev.subTopics() != null) {
+                for (String topic : ev.subTopics()) {
+                    bytes += 48 + chars(topic);
+                }
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 48 + 2L * s.length();
+    }
+
+    /** Exposes the per-kind hit and miss counts and the cache's estimated size in bytes. */
+    public void bindTo(MeterRegistry registry) {
+        for (EventQuery.Kind kind : EventQuery.Kind.values()) {
+            FunctionCounter.builder("events.query.cache.requests", hits.get(kind), LongAdder::sum)
+                    .tag("kind", kind.name()).tag("result", "hit").register(registry);
+            FunctionCounter.builder("events.query.cache.requests", misses.get(kind), LongAdder::sum)
+                    .tag("kind", kind.name()).tag("result", "miss").register(registry);
+        }
+        Gauge.builder("events.query.cache.bytes", this, c -> c.stats().bytes())
+                .baseUnit("bytes").register(registry);
+    }
+
+    public Stats stats() {
+        Map<EventQuery.Kind, KindStats> kinds = new EnumMap<>(EventQuery.Kind.class);
+        for (EventQuery.Kind kind : EventQuery.Kind.values()) {
+            long h = hits.get(kind).sum();
+            long m = misses.get(kind).sum();
+            kinds.put(kind, new KindStats(h, m, h + m == 0 ? 0 : (double) h / (h + m)));
+        }
+        long bytes = cache.synchronous().policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+        return new Stats(cache.synchronous().estimatedSize(), bytes, generation.get(), kinds);
+    }
+
+    private record Entry(long generation, long created, List<ElkEvent> events, int weight) { }
+
+    public record Stats(long size, long bytes, long generation, Map<EventQuery.Kind, KindStats> kinds) { }
+
+    public record KindStats(long hits, long misses, double hitRate) { }
+}
@@ -0,0 +1,21 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Result cache in front of the /query/* searches.
+ *
+ * @param maxBytes     estimated heap taken by cached results; 0 disables caching
+ * @param ttl          hard upper bound on the lifetime of a cached result
+ * @param maxStaleness how long a result may still be served after a write; 0 drops it on the next write
+ */
+@ConfigurationProperties("events.query-cache")
+public record QueryCacheProperties(
+        @DefaultValue("64MB") DataSize maxBytes,
+        @DefaultValue("1m")   Duration ttl,
+        @DefaultValue("0s")   Duration maxStaleness
+) { }
@@ -0,0 +1,21 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Paging of the /query/* endpoints.
+ *
+ * @param pageSize    hits fetched per point-in-time page when streaming, and default page size
+ * @param maxPageSize upper bound for a client-requested page size
+ * @param keepAlive   how long a point-in-time stays open between two pages, and so how long
+ *                    one of a cursor walk nobody finishes is held on the cluster
+ */
+@ConfigurationProperties("events.query")
+public record QueryProperties(
+        @DefaultValue("500")   int      pageSize,
+        @DefaultValue("10000") int      maxPageSize,
+        @DefaultValue("1m")    Duration keepAlive
+) { }
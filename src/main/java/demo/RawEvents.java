@@ -0,0 +1,207 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.transport.endpoints.EndpointBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads events over the low-level client without binding them. The async RestClient
+ * buffers each response body on the heap before handing it over; from that buffer each
+ * hit's {@code _source} is copied token by token into the reply, so a document never
+ * becomes a String or an {@link ElkEvent} on its way through. What is saved is the
+ * binding and the second serialization, not the buffering. Documents come back as
+ * stored, which for anything written by this service is what the bound path returns too.
+ */
+public class RawEvents {
+
+    /** A reply that is written once, by whichever thread sends the response. */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static final String SOURCES = "hits.hits._source";
+
+    private final RestClient rest;
+    private final JsonpMapper mapper;
+    private final AdaptiveLimit limit;
+    private final ElasticsearchMetrics metrics;
+    private final String index;
+    private final boolean partitioned;
+    private final JsonFactory json = new JsonFactory();
+
+    /** {@code metrics} times each call in {@code es.requests}; null leaves them untimed. */
+    public RawEvents(RestClient rest, JsonpMapper mapper, AdaptiveLimit limit, ElasticsearchMetrics metrics,
+                     String index, boolean partitioned) {
+        this.rest = rest;
+        this.mapper = mapper;
+        this.limit = limit;
+        this.metrics = metrics;
+        this.index = index;
+        this.partitioned = partitioned;
+    }
+
+    /**
+     * The stored document, or null when there is none. Partitioned, an ids search over the
+     * read alias stands in for {@code GET _source}, which needs a concrete index.
+     */
+    public CompletableFuture<Body> get(String id) {
+        if (partitioned) {
+            return perform("search", search(index, ids(id))).thenApply(rsp -> {
+                try {
+                    JsonParser p = json.createParser(rsp.getEntity().getContent());
+                    if (!nextSource(p)) {
+                        p.close();
+                        return null;
+                    }
+                    return out -> {
+                        try (p; JsonGenerator gen = json.createGenerator(out)) {
+                            gen.copyCurrentStructure(p);
+                        }
+                    };
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unreadable search response", e);
+                }
+            });
+        }
+        StringBuilder endpoint = new StringBuilder("/").append(index).append("/_source/");
+        EndpointBase.pathEncode(id, endpoint);
+        Request req = new Request("GET", endpoint.toString());
+        req.addParameter("ignore", "404");
+        return perform("get_source", req).thenApply(rsp -> rsp.getStatusLine().getStatusCode() == 404
+                ? null
+                : out -> rsp.getEntity().writeTo(out));
+    }
+
+    /**
+     * The sources of the hits of {@code request}, as one JSON array. Its indices and body
+     * are sent as the typed client would send them; other parameters are not.
+     */
+    public CompletableFuture<Body> search(SearchRequest request) {
+        Request req;
+        try {
+            req = search(String.join(",", request.index()), body(request));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return perform("search", req).thenApply(rsp -> out -> {
+            try (JsonParser p = json.createParser(rsp.getEntity().getContent());
+                 JsonGenerator gen = json.createGenerator(out)) {
+                gen.writeStartArray();
+                while (nextSource(p)) {
+                    gen.copyCurrentStructure(p);
+                }
+                gen.writeEndArray();
+            }
+        });
+    }
+
+    private static Request search(String target, byte[] body) {
+        Request req = new Request("POST", "/" + target + "/_search");
+        req.addParameter("filter_path", SOURCES);
+        req.setEntity(new NByteArrayEntity(body, ContentType.APPLICATION_JSON));
+        return req;
+    }
+
+    private byte[] ids(String id) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        try (JsonGenerator g = json.createGenerator(body)) {
+            g.writeStartObject();
+            g.writeNumberField("size", 1);
+            g.writeObjectFieldStart("query");
+            g.writeObjectFieldStart("ids");
+            g.writeArrayFieldStart("values");
+            g.writeString(id);
+            g.writeEndArray();
+            g.writeEndObject();
+            g.writeEndObject();
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return body.toByteArray();
+    }
+
+    /** The request goes through the client's own serializer so both paths send the same search. */
+    private byte[] body(SearchRequest request) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+        try (jakarta.json.stream.JsonGenerator g = mapper.jsonProvider().createGenerator(body)) {
+            request.serialize(g, mapper);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Moves {@code p} onto the next hit's {@code _source} object. With the
+     * {@value #SOURCES} filter the response holds no other field of that name
+     * outside the sources themselves, which the caller copies past.
+     */
+    private static boolean nextSource(JsonParser p) throws IOException {
+        for (JsonToken t; (t = p.nextToken()) != null; ) {
+            if (t == JsonToken.FIELD_NAME && "_source".equals(p.currentName())) {
+                p.nextToken();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends {@code req} within the same read limit the typed client's searches count against,
+     * timed as {@code operation} in {@code es.requests} up to the buffered response.
+     */
+    private CompletableFuture<Response> perform(String operation, Request req) {
+        try {
+            limit.acquire();
+        } catch (OverloadedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        Cancellable call = rest.performRequestAsync(req, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                long nanos = System.nanoTime() - start;
+                limit.release(nanos, false);
+                if (metrics != null) {
+                    metrics.record(operation, nanos, response.getStatusLine().getStatusCode(), null);
+                }
+                result.complete(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                long nanos = System.nanoTime() - start;
+                int status = e instanceof ResponseException re ? re.getResponse().getStatusLine().getStatusCode() : 0;
+                limit.release(nanos, status == 429 || status == 503 || status == 504);
+                if (metrics != null) {
+                    metrics.record(operation, nanos, status, e);
+                }
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((rsp, e) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+}
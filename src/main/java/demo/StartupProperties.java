@@ -0,0 +1,22 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * How the service gets its index (or partition template and aliases) in place at startup.
+ *
+ * @param asyncBootstrap  create it on a background thread, retrying until Elasticsearch answers,
+ *                        and report readiness through the {@code events} health indicator;
+ *                        false blocks startup on it and fails it if Elasticsearch is down
+ * @param initialBackoff  wait before the first retry, doubled after every failed attempt
+ * @param maxBackoff      cap on the wait between retries
+ */
+@ConfigurationProperties("events.startup")
+public record StartupProperties(
+        @DefaultValue("true")  boolean  asyncBootstrap,
+        @DefaultValue("500ms") Duration initialBackoff,
+        @DefaultValue("30s")   Duration maxBackoff
+) { }
@@ -0,0 +1,32 @@
+package demo;
+
+import org.apache.logging.log4j.core.util.ContextDataProvider;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.apache.logging.log4j.util.StringMap;
+
+import java.util.Map;
+
+/**
+ * Adds the fields of {@link LogContext#STATIC_FIELDS} to every log event.
+ * Registered through META-INF/services.
+ */
+public class StaticContextDataProvider implements ContextDataProvider {
+
+    private static final StringMap FIELDS = freeze(LogContext.STATIC_FIELDS);
+
+    @Override
+    public Map<String, String> supplyContextData() {
+        return LogContext.STATIC_FIELDS;
+    }
+
+    @Override
+    public StringMap supplyStringMap() {
+        return FIELDS;
+    }
+
+    private static StringMap freeze(Map<String, String> fields) {
+        StringMap map = new SortedArrayStringMap(fields);
+        map.freeze();
+        return map;
+    }
+}
@@ -0,0 +1,22 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Title autocomplete.
+ *
+ * @param size      suggestions returned when the request does not say
+ * @param maxSize   upper bound on {@code ?size=}
+ * @param cacheSize prefixes whose suggestions are kept in process; 0 disables the cache
+ * @param cacheTtl  how long cached suggestions are served, new titles show up after at most this
+ */
+@ConfigurationProperties("events.suggest")
+public record SuggestProperties(
+        @DefaultValue("5")     int      size,
+        @DefaultValue("20")    int      maxSize,
+        @DefaultValue("10000") long     cacheSize,
+        @DefaultValue("30s")   Duration cacheTtl
+) { }
@@ -0,0 +1,22 @@
+package demo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * A delete- or update-by-query task as Elasticsearch reports it. {@code status} holds the
+ * running counters (total, deleted / updated, batches, version_conflicts, requests_per_second,
+ * per-slice progress); {@code response} the final result, including failures, once completed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskStatus(
+        String              task,
+        String              action,
+        boolean             completed,
+        Boolean             cancelled,
+        long                runningMillis,
+        Map<String, Object> status,
+        Map<String, Object> response,
+        String              error
+) { }
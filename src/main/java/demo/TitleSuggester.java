@@ -0,0 +1,77 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.search.Suggestion;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Type-ahead over event titles from the {@code title.suggest} completion field. The
+ * completion suggester answers from an in-memory FST per segment, so no query runs;
+ * {@code _source} is not fetched since the option text is the title. Results are kept
+ * per prefix for a short while in a size-bounded cache that keeps the hottest prefixes.
+ */
+public class TitleSuggester {
+
+    private static final String SUGGESTION = "titles";
+
+    private final ElasticsearchAsyncClient es;
+    private final String index;
+    private final SuggestProperties props;
+    private final AsyncCache<String, List<TitleSuggestion>> cache;
+
+    public TitleSuggester(ElasticsearchAsyncClient es, String index, SuggestProperties props) {
+        this.es = es;
+        this.index = index;
+        this.props = props;
+        this.cache = props.cacheSize() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(props.cacheSize())
+                        .expireAfterWrite(props.cacheTtl())
+                        .recordStats()
+                        .buildAsync()
+                : null;
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "events.suggest");
+        }
+    }
+
+    /** Up to {@code size} (null for the default) distinct titles starting with {@code prefix}. */
+    public CompletableFuture<List<TitleSuggestion>> suggest(String prefix, Integer size) {
+        int n = size == null ? props.size() : Math.min(Math.max(size, 1), props.maxSize());
+        // the completion field's simple analyzer lowercases, so case does not change the answer
+        String normalized = prefix.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (cache == null) {
+            return fetch(normalized, n);
+        }
+        return cache.get(n + ":" + normalized, (key, executor) -> fetch(normalized, n));
+    }
+
+    private CompletableFuture<List<TitleSuggestion>> fetch(String prefix, int size) {
+        return es.search(s -> s
+                        .index(index)
+                        .size(0)
+                        .source(c -> c.fetch(false))
+                        .suggest(g -> g.suggesters(SUGGESTION, f -> f
+                                .prefix(prefix)
+                                .completion(c -> c.field("title.suggest").size(size).skipDuplicates(true)))),
+                Void.class
+        ).thenApply(response -> response.suggest().getOrDefault(SUGGESTION, List.of()).stream()
+                .map(Suggestion::completion)
+                .flatMap(c -> c.options().stream())
+                .map(o -> new TitleSuggestion(o.id(), o.text()))
+                .toList());
+    }
+}
@@ -0,0 +1,4 @@
+package demo;
+
+/** One autocomplete hit: the full title and the event it belongs to. */
+public record TitleSuggestion(String id, String title) { }
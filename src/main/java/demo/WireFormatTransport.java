@@ -0,0 +1,322 @@
+package demo;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonProvider;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpParser;
+import co.elastic.clients.transport.ElasticsearchTransportBase;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.http.HeaderMap;
+import co.elastic.clients.transport.http.TransportHttpClient;
+import co.elastic.clients.transport.instrumentation.Instrumentation;
+import co.elastic.clients.transport.rest_client.RestClientHttpClient;
+import co.elastic.clients.util.BinaryData;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.json.JsonException;
+import jakarta.json.spi.JsonProvider;
+import org.elasticsearch.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The typed client speaking SMILE or CBOR to Elasticsearch instead of JSON.
+ *
+ * The client encodes and decodes every body with its mapper's Jackson factory, but it
+ * always sends JSON content-type and accept headers and refuses responses that are not
+ * labelled JSON. So the mapper here is built on the binary factory, and the HTTP client
+ * underneath relabels both ways: requests go out as the binary type, binary responses
+ * come back labelled JSON, and a response that really is JSON is transcoded first.
+ *
+ * Bulk and multi-search bodies are one document per line. A SMILE body separates them
+ * with 0xFF rather than a newline; Elasticsearch cannot read such bodies in CBOR, so
+ * CBOR lines are transcoded and sent as NDJSON.
+ */
+public class WireFormatTransport extends ElasticsearchTransportBase {
+
+    private static final String JSON = ElasticsearchTransportBase.JSON_CONTENT_TYPE;
+    private static final byte SMILE_SEPARATOR = (byte) 0xFF;
+
+    public WireFormatTransport(RestClient rest, ClientProperties.Format format,
+                               JacksonJsonpMapper json, Instrumentation instrumentation) {
+        this(new RestClientHttpClient(rest), format, json, instrumentation);
+    }
+
+    WireFormatTransport(TransportHttpClient http, ClientProperties.Format format,
+                        JacksonJsonpMapper json, Instrumentation instrumentation) {
+        super(new Relabeling(http, format), null, mapper(json, format), instrumentation);
+    }
+
+    /** {@code json}'s configuration and modules on the binary factory of {@code format}. */
+    static JacksonJsonpMapper mapper(JacksonJsonpMapper json, ClientProperties.Format format) {
+        return format == ClientProperties.Format.JSON
+                ? json
+                : new BinaryMapper(json.objectMapper().copyWith(factory(format)));
+    }
+
+    static JsonFactory factory(ClientProperties.Format format) {
+        return switch (format) {
+            case JSON -> new JsonFactory();
+            case SMILE -> new SmileFactory();
+            case CBOR -> new CBORFactory();
+        };
+    }
+
+    /**
+     * Reads streams with the binary parser and strings, which the client only ever holds
+     * as JSON text, with a JSON one. The client reads keys through
+     * {@code getValueAsString()}, which the binary parsers answer with null on a field
+     * name where the JSON parser gives the name, so their parsers are wrapped to agree.
+     */
+    private static final class BinaryMapper extends JacksonJsonpMapper {
+
+        private final JacksonJsonProvider provider;
+
+        BinaryMapper(ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.provider = new BinaryProvider(this);
+        }
+
+        private BinaryMapper(BinaryMapper from) {
+            super(from.objectMapper());
+            this.provider = from.provider;
+        }
+
+        @Override
+        public JsonProvider jsonProvider() {
+            return provider;
+        }
+
+        @Override
+        public <T> JsonpMapper withAttribute(String name, T value) {
+            return new BinaryMapper(this).addAttribute(name, value);
+        }
+    }
+
+    private static final class BinaryProvider extends JacksonJsonProvider {
+
+        private final JsonFactory binary;
+        private final JsonFactory text;
+
+        BinaryProvider(JacksonJsonpMapper mapper) {
+            super(mapper);
+            this.binary = mapper.objectMapper().getFactory();
+            this.text = new JsonFactory(mapper.objectMapper());
+        }
+
+        @Override
+        public jakarta.json.stream.JsonParser createParser(InputStream in) {
+            try {
+                return new JacksonJsonpParser(new FieldNames(binary.createParser(in)), mapper());
+            } catch (IOException e) {
+                throw new JsonException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public jakarta.json.stream.JsonParser createParser(Reader reader) {
+            try {
+                return new JacksonJsonpParser(text.createParser(reader), mapper());
+            } catch (IOException e) {
+                throw new JsonException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class FieldNames extends JsonParserDelegate {
+
+        FieldNames(JsonParser parser) {
+            super(parser);
+        }
+
+        @Override
+        public String getValueAsString() throws IOException {
+            return currentToken() == JsonToken.FIELD_NAME ? currentName() : super.getValueAsString();
+        }
+
+        @Override
+        public String getValueAsString(String defaultValue) throws IOException {
+            return currentToken() == JsonToken.FIELD_NAME ? currentName() : super.getValueAsString(defaultValue);
+        }
+    }
+
+    private static final class Relabeling implements TransportHttpClient {
+
+        private final TransportHttpClient delegate;
+        private final ClientProperties.Format format;
+        private final JsonFactory binary;
+        private final JsonFactory json = new JsonFactory();
+        private final String contentType;
+        private final String subtype;
+
+        Relabeling(TransportHttpClient delegate, ClientProperties.Format format) {
+            this.delegate = delegate;
+            this.format = format;
+            this.binary = factory(format);
+            this.subtype = format.name().toLowerCase(Locale.ROOT);
+            this.contentType = JSON.replace("json", subtype);
+        }
+
+        @Override
+        public TransportOptions createOptions(TransportOptions options) {
+            return delegate.createOptions(options);
+        }
+
+        @Override
+        public Response performRequest(String endpointId, Node node, Request request, TransportOptions options)
+                throws IOException {
+            return new Relabeled(delegate.performRequest(endpointId, node, encode(request), options));
+        }
+
+        @Override
+        public CompletableFuture<Response> performRequestAsync(String endpointId, Node node, Request request,
+                                                               TransportOptions options) {
+            Request encoded;
+            try {
+                encoded = encode(request);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return delegate.performRequestAsync(endpointId, node, encoded, options).thenApply(Relabeled::new);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        /**
+         * A body the client serialized is one buffer; a line-per-document body is each line
+         * followed by a one-byte newline buffer. Bodies the client passed through as they
+         * came carry their own content type and are left alone.
+         */
+        private Request encode(Request request) throws IOException {
+            HeaderMap headers = new HeaderMap(request.headers());
+            headers.put("Accept", contentType);
+            Iterable<ByteBuffer> body = request.body();
+            if (body != null && JSON.equals(headers.get("Content-Type"))) {
+                List<ByteBuffer> buffers = new ArrayList<>();
+                body.forEach(buffers::add);
+                if (buffers.size() == 1) {
+                    headers.put("Content-Type", contentType);
+                } else if (format == ClientProperties.Format.SMILE) {
+                    buffers.replaceAll(b -> isNewline(b) ? ByteBuffer.wrap(new byte[]{SMILE_SEPARATOR}) : b);
+                    headers.put("Content-Type", contentType);
+                } else {
+                    buffers.replaceAll(b -> isNewline(b) ? b : transcode(b));
+                }
+                body = buffers;
+            }
+            return new Request(request.method(), request.path(), request.queryParams(), headers, body);
+        }
+
+        private static boolean isNewline(ByteBuffer b) {
+            return b.remaining() == 1 && b.get(b.position()) == '\n';
+        }
+
+        private ByteBuffer transcode(ByteBuffer line) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(line.remaining() * 2);
+            try (JsonParser p = binary.createParser(new ByteBufferBackedInputStream(line.duplicate()));
+                 JsonGenerator g = json.createGenerator(out)) {
+                p.nextToken();
+                g.copyCurrentStructure(p);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not transcode a " + subtype + " line to JSON", e);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+
+        /** The response with its body in the binary format and labelled JSON. */
+        private final class Relabeled implements Response {
+
+            private final Response response;
+            private BinaryData body;
+
+            Relabeled(Response response) {
+                this.response = response;
+            }
+
+            @Override
+            public BinaryData body() throws IOException {
+                if (body == null) {
+                    BinaryData raw = response.body();
+                    if (raw == null) {
+                        return null;
+                    }
+                    String type = raw.contentType();
+                    if (type != null && type.contains(subtype)) {
+                        body = BinaryData.of(readAll(raw), JSON);
+                    } else if (type != null && type.contains("json")) {
+                        body = BinaryData.of(toBinary(raw), JSON);
+                    } else {
+                        body = raw;
+                    }
+                }
+                return body;
+            }
+
+            private static byte[] readAll(BinaryData data) throws IOException {
+                try (InputStream in = data.asInputStream()) {
+                    return in.readAllBytes();
+                }
+            }
+
+            private byte[] toBinary(BinaryData data) throws IOException {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try (InputStream in = data.asInputStream();
+                     JsonParser p = json.createParser(in);
+                     JsonGenerator g = binary.createGenerator(out)) {
+                    if (p.nextToken() != null) {
+                        g.copyCurrentStructure(p);
+                    }
+                }
+                return out.toByteArray();
+            }
+
+            @Override
+            public Node node() {
+                return response.node();
+            }
+
+            @Override
+            public int statusCode() {
+                return response.statusCode();
+            }
+
+            @Override
+            public String header(String name) {
+                return response.header(name);
+            }
+
+            @Override
+            public List<String> headers(String name) {
+                return response.headers(name);
+            }
+
+            @Override
+            public Object originalResponse() {
+                return response.originalResponse();
+            }
+
+            @Override
+            public void close() throws IOException {
+                response.close();
+            }
+        }
+    }
+}
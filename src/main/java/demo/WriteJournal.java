@@ -0,0 +1,333 @@
+package demo;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal of opaque entries in memory-mapped segment files. Positions are
+ * byte offsets over the whole journal; a segment is named after the position of its first
+ * entry and a new one starts wherever the previous one ran out of room.
+ *
+ * Each entry is {@code length, crc32c, timestamp, payload}; the length is written last,
+ * so on restart the scan of the newest segment stops at the first torn or zero entry.
+ * The {@code checkpoint} file holds the position everything before which has been
+ * replayed; segments entirely before it are deleted.
+ *
+ * An entry elsewhere that fails its crc is read back as a {@link Record} without payload,
+ * as is the rest of its segment when its length cannot be trusted, and the segment is
+ * copied aside to {@code <segment>.corrupt}. The directory is locked by one process at a time.
+ */
+public class WriteJournal implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(WriteJournal.class);
+    private static final int HEADER = 16;
+    private static final String SUFFIX = ".seg";
+
+    /** One entry and the position of the entry after it; a corrupt span has a null payload. */
+    public record Record(long position, long next, long timestamp, byte[] payload) { }
+
+    private record Segment(long base, Path file, MappedByteBuffer buffer) { }
+
+    private final Path dir;
+    private final JournalProperties props;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final ScheduledExecutorService syncer;
+    private final FileChannel lock;
+    private volatile Segment active;
+    private volatile long writePosition;
+    private volatile long checkpoint;
+    private volatile boolean dirty;
+
+    public WriteJournal(JournalProperties props) throws IOException {
+        this.props = props;
+        this.dir = Path.of(props.directory());
+        this.segmentSize = Math.toIntExact(props.segmentSize().toBytes());
+        Files.createDirectories(dir);
+        lock = lock(dir.resolve("lock"));
+        checkpoint = readCheckpoint();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(SUFFIX))::iterator) {
+                String name = file.getFileName().toString();
+                long base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                segments.put(base, map(base, file));
+            }
+        }
+        if (segments.isEmpty()) {
+            active = open(checkpoint);
+            writePosition = checkpoint;
+        } else {
+            active = segments.lastEntry().getValue();
+            writePosition = active.base() + recover(active);
+            checkpoint = Math.min(Math.max(checkpoint, segments.firstKey()), writePosition);
+        }
+        pending.set(count(checkpoint));
+        LOG.info("Journal {} opened: {} entries ({} bytes) to replay", dir, pending.get(), depth());
+        if (props.fsync() == JournalProperties.Fsync.INTERVAL) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            long every = props.fsyncInterval().toMillis();
+            syncer.scheduleWithFixedDelay(this::syncQuietly, every, every, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Appends one entry and returns its position; durable on return with fsync=always.
+     *
+     * @throws WriteRejectedException if the journal already holds {@code maxSize} unreplayed bytes
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        int size = HEADER + payload.length;
+        if (size > segmentSize) {
+            throw new IOException("Journal entry of " + size + " bytes does not fit a " + segmentSize + " byte segment");
+        }
+        if (writePosition - checkpoint + size > props.maxSize().toBytes()) {
+            throw new WriteRejectedException("Journal full");
+        }
+        long position = writePosition;
+        if (position - active.base() + size > segmentSize) {
+            force(active);
+            active = open(position);
+        }
+        MappedByteBuffer buf = active.buffer();
+        int offset = (int) (position - active.base());
+        buf.putLong(offset + 8, System.currentTimeMillis());
+        buf.put(offset + HEADER, payload);
+        buf.putInt(offset + 4, crc(buf, offset, payload.length));
+        buf.putInt(offset, payload.length);
+        if (props.fsync() == JournalProperties.Fsync.ALWAYS) {
+            buf.force(offset, size);
+        } else {
+            dirty = true;
+        }
+        writePosition = position + size;
+        pending.incrementAndGet();
+        notifyAll();
+        return position;
+    }
+
+    /** Up to {@code max} entries starting at {@code from}, which must be an entry boundary. */
+    public List<Record> read(long from, int max) {
+        List<Record> records = new ArrayList<>();
+        long end = writePosition;
+        for (long pos = from; pos < end && records.size() < max; ) {
+            Segment segment = segments.floorEntry(pos).getValue();
+            int offset = (int) (pos - segment.base());
+            MappedByteBuffer buf = segment.buffer();
+            int length = buf.getInt(offset);
+            long next = next(segment, pos, end);
+            boolean intact = length > 0 && next == pos + HEADER + length
+                    && buf.getInt(offset + 4) == crc(buf, offset, length);
+            if (!intact) {
+                quarantine(segment, pos, next);
+                records.add(new Record(pos, next, 0, null));
+            } else {
+                byte[] payload = new byte[length];
+                buf.get(offset + HEADER, payload);
+                records.add(new Record(pos, next, buf.getLong(offset + 8), payload));
+            }
+            pos = next;
+        }
+        return records;
+    }
+
+    /** Waits up to {@code millis} for an entry at or after {@code position}. */
+    public synchronized void awaitAppend(long position, long millis) throws InterruptedException {
+        if (writePosition <= position) {
+            wait(millis);
+        }
+    }
+
+    /**
+     * Records that everything before {@code position} ({@code entries} entries since the
+     * last checkpoint) is in Elasticsearch, and deletes the segments that are now spent.
+     */
+    public void commit(long position, int entries) throws IOException {
+        Path tmp = dir.resolve("checkpoint.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve("checkpoint"), ATOMIC_MOVE, REPLACE_EXISTING);
+        checkpoint = position;
+        pending.addAndGet(-entries);
+        for (Map.Entry<Long, Segment> e : segments.entrySet()) {
+            Long next = segments.higherKey(e.getKey());
+            if (next == null || next > position) {
+                break;
+            }
+            segments.remove(e.getKey());
+            Files.deleteIfExists(e.getValue().file());
+        }
+    }
+
+    public long checkpoint() {
+        return checkpoint;
+    }
+
+    /** Bytes appended but not yet replayed. */
+    public long depth() {
+        return writePosition - checkpoint;
+    }
+
+    /** Entries appended but not yet replayed. */
+    public long pending() {
+        return pending.get();
+    }
+
+    /** When the oldest unreplayed entry was appended; 0 when there is none. */
+    public long oldestPendingMillis() {
+        long from = checkpoint;
+        if (from >= writePosition) {
+            return 0;
+        }
+        Segment segment = segments.floorEntry(from).getValue();
+        return segment.buffer().getLong((int) (from - segment.base()) + 8);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        force(active);
+        try {
+            lock.close();
+        } catch (IOException e) {
+            LOG.warn("Could not unlock journal {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private static FileChannel lock(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, CREATE, WRITE);
+        try {
+            if (ch.tryLock() != null) {
+                return ch;
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by this process
+        }
+        ch.close();
+        throw new IOException("Journal " + file.getParent() + " is in use by another process");
+    }
+
+    private Segment open(long base) throws IOException {
+        Segment segment = map(base, dir.resolve(String.format("%020d", base) + SUFFIX));
+        segments.put(base, segment);
+        return segment;
+    }
+
+    private Segment map(long base, Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, CREATE, READ, WRITE)) {
+            return new Segment(base, file, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    /** Offset after the last intact entry of {@code segment}; a torn entry after it is zeroed. */
+    private int recover(Segment segment) {
+        MappedByteBuffer buf = segment.buffer();
+        int offset = 0;
+        while (offset + HEADER <= segmentSize) {
+            int length = buf.getInt(offset);
+            if (length <= 0) {
+                break;
+            }
+            if (offset + HEADER + length > segmentSize || buf.getInt(offset + 4) != crc(buf, offset, length)) {
+                LOG.warn("Dropping torn journal entry at {}", segment.base() + offset);
+                int end = Math.min(offset + HEADER + Math.max(length, 0), segmentSize);
+                for (int i = offset; i < end; i++) {
+                    buf.put(i, (byte) 0);
+                }
+                buf.force();
+                break;
+            }
+            offset += HEADER + length;
+        }
+        return offset;
+    }
+
+    private long count(long from) {
+        long n = 0;
+        for (long pos = from; pos < writePosition; n++) {
+            pos = next(segments.floorEntry(pos).getValue(), pos, writePosition);
+        }
+        return n;
+    }
+
+    /** Position after the entry at {@code pos}; one with an impossible length runs to the end of its segment. */
+    private long next(Segment segment, long pos, long end) {
+        int length = segment.buffer().getInt((int) (pos - segment.base()));
+        if (length <= 0 || pos - segment.base() + HEADER + length > segmentSize) {
+            Long following = segments.higherKey(segment.base());
+            return following != null ? following : end;
+        }
+        return pos + HEADER + length;
+    }
+
+    private void quarantine(Segment segment, long from, long to) {
+        LOG.error("Skipping corrupt journal entries from {} to {}", from, to);
+        Path copy = segment.file().resolveSibling(segment.file().getFileName() + ".corrupt");
+        try {
+            if (!Files.exists(copy)) {
+                Files.copy(segment.file(), copy);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not keep a copy of {}: {}", segment.file(), e.getMessage());
+        }
+    }
+
+    private static int crc(ByteBuffer buf, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(offset + 8, 8 + length));
+        return (int) crc.getValue();
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = dir.resolve("checkpoint");
+        return Files.exists(file) ? ByteBuffer.wrap(Files.readAllBytes(file)).getLong() : 0;
+    }
+
+    private void force(Segment segment) {
+        if (props.fsync() != JournalProperties.Fsync.NEVER) {
+            segment.buffer().force();
+        }
+    }
+
+    private void syncQuietly() {
+        if (dirty) {
+            dirty = false;
+            force(active);
+        }
+    }
+}
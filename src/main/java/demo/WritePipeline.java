@@ -0,0 +1,136 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces index / update / delete operations from concurrent callers into
+ * bulk requests and hands each caller the result of its own item.
+ *
+ * Batching, size / linger flushing, the in-flight limit and retrying items
+ * rejected with 429 come from the client's {@link BulkIngester}; this class adds the bounded queue in front of
+ * it and maps bulk items back to the callers' futures.
+ */
+public class WritePipeline implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(WritePipeline.class);
+    private final BulkIngester<CompletableFuture<BulkResponseItem>> ingester;
+    private final Semaphore queue;
+    private final int capacity;
+    private final long enqueueTimeoutMs;
+    private final boolean ackOnEnqueue;
+
+    public WritePipeline(ElasticsearchAsyncClient es, WriteProperties props) {
+        this.capacity = props.queueCapacity();
+        this.queue = new Semaphore(capacity);
+        this.enqueueTimeoutMs = props.enqueueTimeout().toMillis();
+        this.ackOnEnqueue = props.ackOnEnqueue();
+        this.ingester = BulkIngester.of(b -> b
+                .client(es)
+                .maxOperations(props.maxOperations())
+                .maxSize(props.maxBytes().toBytes())
+                .maxConcurrentRequests(props.maxInFlight())
+                .flushInterval(props.linger().toMillis(), TimeUnit.MILLISECONDS)
+                .backoffPolicy(new JitteredBackoff(props.initialBackoff().toMillis(), props.retries()))
+                .listener(new ItemListener()));
+    }
+
+    /**
+     * Queues an operation; the returned future completes with its bulk item,
+     * or exceptionally if that item (or the whole bulk) failed.
+     */
+    public CompletableFuture<BulkResponseItem> submit(BulkOperation op) throws IOException {
+        try {
+            if (!queue.tryAcquire(enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new WriteRejectedException("Write queue full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteRejectedException("Interrupted while waiting for write queue");
+        }
+
+        CompletableFuture<BulkResponseItem> result = new CompletableFuture<>();
+        result.whenComplete((item, err) -> queue.release());
+        try {
+            ingester.add(op, result);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            throw new IOException("Could not enqueue " + op._kind(), e);
+        }
+        return result;
+    }
+
+    /**
+     * The write's outcome as {@code ack}, or {@code ack} right away when writes
+     * are acknowledged on enqueue; failures are then only logged.
+     */
+    public <T> CompletableFuture<T> acknowledged(CompletableFuture<?> result, T ack) {
+        if (ackOnEnqueue) {
+            result.exceptionally(e -> {
+                LOG.warn("Acknowledged write failed: {}", e.getMessage());
+                return null;
+            });
+            return CompletableFuture.completedFuture(ack);
+        }
+        return result.thenApply(item -> ack);
+    }
+
+    /** Operations accepted but not yet acknowledged. */
+    public int pending() {
+        return capacity - queue.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        ingester.close();
+    }
+
+    private static final class ItemListener implements BulkListener<CompletableFuture<BulkResponseItem>> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request,
+                               List<CompletableFuture<BulkResponseItem>> callers) {
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request,
+                              List<CompletableFuture<BulkResponseItem>> callers, BulkResponse response) {
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < callers.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                if (item.error() != null) {
+                    callers.get(i).completeExceptionally(new IOException(
+                            "Bulk " + item.operationType().jsonValue() + " of " + item.id() + " failed ["
+                                    + item.status() + "]: " + item.error().type() + " " + item.error().reason()));
+                } else {
+                    callers.get(i).complete(item);
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request,
+                              List<CompletableFuture<BulkResponseItem>> callers, Throwable failure) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            // a bulk shed by the concurrency limit stays a 503 for every caller in it
+            IOException err = cause instanceof OverloadedException overloaded
+                    ? overloaded : new IOException("Bulk request failed", cause);
+            callers.forEach(f -> f.completeExceptionally(err));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Tuning for the bulk write pipeline behind store / update / delete.
+ *
+ * @param maxOperations  flush a bulk once it holds this many operations
+ * @param maxBytes       flush a bulk once its serialized size reaches this
+ * @param linger         flush whatever is buffered at least this often
+ * @param maxInFlight    bulks allowed on the wire at the same time
+ * @param queueCapacity  operations accepted but not yet acknowledged by ES
+ * @param enqueueTimeout how long a caller waits for queue space before being rejected
+ * @param ackOnEnqueue   return to the caller as soon as the operation is queued
+ * @param retries        retries of an item rejected with 429
+ * @param initialBackoff base of the jittered exponential delay between those retries
+ */
+@ConfigurationProperties("events.write")
+public record WriteProperties(
+        @DefaultValue("500")   int      maxOperations,
+        @DefaultValue("5MB")   DataSize maxBytes,
+        @DefaultValue("5ms")   Duration linger,
+        @DefaultValue("4")     int      maxInFlight,
+        @DefaultValue("10000") int      queueCapacity,
+        @DefaultValue("2s")    Duration enqueueTimeout,
+        @DefaultValue("false") boolean  ackOnEnqueue,
+        @DefaultValue("3")     int      retries,
+        @DefaultValue("100ms") Duration initialBackoff
+) { }
@@ -0,0 +1,17 @@
+package demo;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the write pipeline has no room for another operation.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class WriteRejectedException extends IOException {
+
+    public WriteRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,108 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void fastRoundTripsAtFullUseGrowTheLimitBySquareRoot() {
+        AdaptiveLimit limit = limit(16, 100);
+        acquire(limit, 16);
+
+        limit.release(MS, false);                   // 16 * 1 + sqrt(16)
+
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void slowRoundTripHalvesTheEstimateAtMost() {
+        AdaptiveLimit limit = limit(16, 100);
+        acquire(limit, 16);
+        limit.release(MS, false);                   // 20, long-term average 1ms
+
+        limit.release(4 * MS, false);               // gradient 1.5 * 1.012 / 4 floored at 0.5: 20 * 0.5 + sqrt(20)
+
+        assertThat(limit.limit()).isEqualTo(14);
+    }
+
+    @Test
+    void roundTripWithinToleranceCountsAsFast() {
+        AdaptiveLimit limit = limit(16, 100);
+        acquire(limit, 16);
+        limit.release(MS, false);
+
+        limit.release(MS + MS / 2, false);          // 1.5ms against ~1ms is within 1.5x: 20 + sqrt(20)
+
+        assertThat(limit.limit()).isEqualTo(24);
+    }
+
+    @Test
+    void underusedLimitOnlyFeedsTheAverage() {
+        AdaptiveLimit limit = limit(16, 100);
+        acquire(limit, 7);
+
+        limit.release(MS, false);                   // 7 in use is under half of 16
+
+        assertThat(limit.limit()).isEqualTo(16);
+    }
+
+    @Test
+    void pushBackCutsByTheRatioDownToTheMinimum() {
+        AdaptiveLimit limit = limit(16, 100);
+        acquire(limit, 1);
+        limit.release(MS, true);
+        assertThat(limit.limit()).isEqualTo(14);    // 16 * 0.9
+
+        AdaptiveLimit floor = limit(2, 100);
+        acquire(floor, 1);
+        floor.release(MS, true);
+        assertThat(floor.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void growthStopsAtMax() {
+        AdaptiveLimit limit = limit(99, 100);
+        acquire(limit, 99);
+
+        limit.release(MS, false);
+
+        assertThat(limit.limit()).isEqualTo(100);
+    }
+
+    @Test
+    void requestsOverTheLimitAreRejectedAndCounted() {
+        AdaptiveLimit limit = limit(2, 100);
+        acquire(limit, 2);
+
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThatThrownBy(limit::acquire).isInstanceOf(OverloadedException.class);
+        assertThat(limit.rejected()).isEqualTo(2);
+        assertThat(limit.inflight()).isEqualTo(2);
+
+        assertThat(AdaptiveLimit.unbounded("read").tryAcquire()).isTrue();
+    }
+
+    /** The defaults but for {@code min} and {@code smoothing}, and quick bulk retries. */
+    static LimitProperties props(int min, double smoothing) {
+        return new LimitProperties(true, 20, 200, 10, 50, min, 1.5, 0.9, smoothing,
+                Duration.ofSeconds(1), 2, Duration.ofMillis(1));
+    }
+
+    /** Smoothing of 1, so each sample's estimate becomes the limit. */
+    private static AdaptiveLimit limit(int initial, int max) {
+        return new AdaptiveLimit("read", initial, max, props(2, 1.0));
+    }
+
+    private static void acquire(AdaptiveLimit limit, int n) {
+        for (int i = 0; i < n; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+    }
+}
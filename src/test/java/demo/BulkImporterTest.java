@@ -0,0 +1,76 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkImporterTest {
+
+    private final StubTransport transport = new StubTransport();
+
+    @Test
+    void malformedLinesAreCountedAndTheRestIsImported() throws Exception {
+        transport.on("es/bulk", (BulkRequest req) -> indexed(req));
+        String ndjson = """
+                {"id":"1","title":"One","eventType":"WORKSHOP"}
+                {"id":"2","title":
+                {"id":"3","title":"Three","eventType":"MEETUP"}
+
+                {"id":"4","title":"Four","eventType":"TECH_TALK"}
+                """;
+
+        ImportSummary summary = importer().run(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "events");
+
+        assertThat(summary.read()).isEqualTo(4);
+        assertThat(summary.indexed()).isEqualTo(2);
+        assertThat(summary.failed()).isEqualTo(2);
+        assertThat(summary.errors()).hasSize(2)
+                .anySatisfy(e -> assertThat(e).startsWith("line 2: "))
+                .anySatisfy(e -> assertThat(e).startsWith("line 3: "));
+        BulkRequest sent = (BulkRequest) transport.requests.get(0);
+        assertThat(sent.operations()).extracting(op -> op.index().id()).containsExactly("1", "4");
+    }
+
+    @Test
+    void lineOverMaxDocumentIsSkippedWithoutReadingItWhole() throws Exception {
+        transport.on("es/bulk", (BulkRequest req) -> indexed(req));
+        String ndjson = "{\"id\":\"1\",\"title\":\"" + "x".repeat(20_000) + "\"}\n"
+                + "not json\n"
+                + "{\"id\":\"2\",\"title\":\"Two\"}";
+
+        ImportSummary summary = importer().run(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "events");
+
+        assertThat(summary.read()).isEqualTo(3);
+        assertThat(summary.indexed()).isEqualTo(1);
+        assertThat(summary.errors()).hasSize(2)
+                .anySatisfy(e -> assertThat(e).isEqualTo("line 1: line longer than 10240 bytes"))
+                .anySatisfy(e -> assertThat(e).startsWith("line 2: "));
+        BulkRequest sent = (BulkRequest) transport.requests.get(0);
+        assertThat(sent.operations()).extracting(op -> op.index().id()).containsExactly("2");
+    }
+
+    private BulkImporter importer() {
+        return new BulkImporter(new ElasticsearchAsyncClient(transport), new ImportProperties(
+                100, DataSize.ofMegabytes(1), 1, 0, Duration.ofMillis(10), DataSize.ofKilobytes(10)));
+    }
+
+    private static BulkResponse indexed(BulkRequest request) {
+        List<BulkResponseItem> items = request.operations().stream().map(op -> BulkResponseItem.of(i -> i
+                .operationType(OperationType.Index).index("events").id(op.index().id())
+                .status(201).result("created"))).toList();
+        return BulkResponse.of(r -> r.errors(false).took(1).items(items));
+    }
+}
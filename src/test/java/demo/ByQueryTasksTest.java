@@ -0,0 +1,79 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
+import co.elastic.clients.elasticsearch.tasks.GetTasksResponse;
+import co.elastic.clients.elasticsearch.tasks.TaskInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByQueryTasksTest {
+
+    private final StubTransport transport = new StubTransport();
+    private final CompletableFuture<String> done = new CompletableFuture<>();
+    private final ByQueryTasks tasks = new ByQueryTasks(
+            new ElasticsearchAsyncClient(transport), done::complete, Duration.ofMillis(10));
+
+    @AfterEach
+    void close() {
+        tasks.close();
+    }
+
+    @Test
+    void ownsOnlyTheTasksItStarted() throws Exception {
+        transport.on("es/delete_by_query", req -> DeleteByQueryResponse.of(r -> r.task("node:1")));
+        transport.on("es/tasks.get", req -> status(false));
+
+        assertThat(tasks.delete(List.of("events"), EventQuery.all(), null).get(5, TimeUnit.SECONDS))
+                .isEqualTo("node:1");
+
+        assertThat(tasks.owns("node:1")).isTrue();
+        assertThat(tasks.owns("node:2")).isFalse();
+    }
+
+    @Test
+    void completionIsReportedWithoutAnybodyPolling() throws Exception {
+        AtomicInteger polls = new AtomicInteger();
+        transport.on("es/delete_by_query", req -> DeleteByQueryResponse.of(r -> r.task("node:1")));
+        transport.on("es/tasks.get", req -> status(polls.incrementAndGet() >= 3));
+
+        tasks.delete(List.of("events"), EventQuery.all(), null);
+
+        assertThat(done.get(5, TimeUnit.SECONDS)).isEqualTo("node:1");
+        assertThat(polls).hasValue(3);
+    }
+
+    @Test
+    void vanishedTaskIsReportedDone() throws Exception {
+        transport.on("es/delete_by_query", req -> DeleteByQueryResponse.of(r -> r.task("node:1")));
+        transport.on("es/tasks.get", req -> new ElasticsearchException("tasks.get", ErrorResponse.of(e -> e
+                .status(404).error(c -> c.type("resource_not_found_exception").reason("task not found")))));
+
+        tasks.delete(List.of("events"), EventQuery.all(), null);
+
+        assertThat(done.get(5, TimeUnit.SECONDS)).isEqualTo("node:1");
+    }
+
+    private static GetTasksResponse status(boolean completed) {
+        return GetTasksResponse.of(r -> r.completed(completed).task(TaskInfo.taskInfoOf(t -> t
+                .action("indices:data/write/delete/byquery")
+                .cancellable(true)
+                .headers(Map.of())
+                .id(1)
+                .node("node")
+                .runningTimeInNanos(1_000_000)
+                .startTimeInMillis(0)
+                .type("transport"))));
+    }
+}
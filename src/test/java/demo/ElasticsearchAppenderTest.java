@@ -0,0 +1,71 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ElasticsearchAppenderTest {
+
+    private static final byte[] ACTION = "{\"create\":{}}\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsSurviveWrappingAroundTheRing() {
+        // each record is 4 + 14 + 10 + 1 = 29 bytes, so the third one straddles the end of 64
+        ElasticsearchAppender.Ring ring = new ElasticsearchAppender.Ring(64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            assertThat(ring.offer(ACTION, doc(i), 10, Integer.MAX_VALUE)).isTrue();
+            assertThat(ring.drainTo(out, 1024)).isEqualTo(1);
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"create\":{}}\n" + text(i) + "\n");
+            out.reset();
+        }
+    }
+
+    @Test
+    void fullRingRefusesAndDrainStopsAtMaxBytes() {
+        ElasticsearchAppender.Ring ring = new ElasticsearchAppender.Ring(64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(ring.offer(ACTION, doc(0), 10, Integer.MAX_VALUE)).isTrue();
+        assertThat(ring.offer(ACTION, doc(1), 10, Integer.MAX_VALUE)).isTrue();
+        assertThat(ring.offer(ACTION, doc(2), 10, Integer.MAX_VALUE)).isFalse();
+
+        assertThat(ring.drainTo(out, 30)).isEqualTo(1);
+        assertThat(ring.offer(ACTION, doc(2), 10, Integer.MAX_VALUE)).isTrue();     // wraps
+        out.reset();
+        assertThat(ring.drainTo(out, 1)).isEqualTo(1);                              // one at least
+        assertThat(ring.drainTo(out, 1024)).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("{\"create\":{}}\n" + text(1) + "\n{\"create\":{}}\n" + text(2) + "\n");
+    }
+
+    @Test
+    void spillStopsAtMaxSize() throws IOException {
+        Path file = dir.resolve("spill/logs.ndjson");
+
+        assertThat(ElasticsearchAppender.spill(file, 10, new byte[11])).isFalse();
+        assertThat(file).doesNotExist();
+        assertThat(ElasticsearchAppender.spill(file, 10, new byte[6])).isTrue();
+        assertThat(ElasticsearchAppender.spill(file, 10, new byte[5])).isFalse();
+        assertThat(ElasticsearchAppender.spill(file, 10, new byte[4])).isTrue();
+        assertThat(Files.size(file)).isEqualTo(10);
+    }
+
+    private static byte[] doc(int i) {
+        return text(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(int i) {
+        return String.format("{\"n\":%4d}", i);
+    }
+}
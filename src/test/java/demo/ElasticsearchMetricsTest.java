@@ -0,0 +1,38 @@
+package demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ElasticsearchMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ElasticsearchMetrics metrics =
+            new ElasticsearchMetrics(registry, new MetricsProperties(List.of(Duration.ofMillis(10))));
+
+    @Test
+    void lowLevelCallsLandInTheSameTimerByOutcome() {
+        metrics.record("search", TimeUnit.MILLISECONDS.toNanos(4), 200, null);
+        metrics.record("search", TimeUnit.MILLISECONDS.toNanos(6), 200, null);
+        metrics.record("search", TimeUnit.MILLISECONDS.toNanos(1), 503, new IOException("unavailable"));
+        metrics.record("get_source", TimeUnit.MILLISECONDS.toNanos(1), 404, new IOException("missing"));
+        metrics.record("open_point_in_time", TimeUnit.MILLISECONDS.toNanos(1), 0, new IOException("refused"));
+
+        assertThat(count("search", "success")).isEqualTo(2);
+        assertThat(registry.get("es.requests").tags("operation", "search", "outcome", "success").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(10);
+        assertThat(count("search", "server_error")).isEqualTo(1);
+        assertThat(count("get_source", "client_error")).isEqualTo(1);
+        assertThat(count("open_point_in_time", "error")).isEqualTo(1);
+    }
+
+    private long count(String operation, String outcome) {
+        return registry.get("es.requests").tags("operation", operation, "outcome", outcome).timer().count();
+    }
+}
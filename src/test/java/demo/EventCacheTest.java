@@ -0,0 +1,98 @@
+package demo;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventCacheTest {
+
+    private static final ElkEvent EVENT = new ElkEvent("1", "Title", EventType.WORKSHOP,
+            Instant.parse("2024-07-05T13:00:00Z"), "Berlin", "Workshop", List.of());
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CompletableFuture<Optional<ElkEvent>> pending = new CompletableFuture<>();
+    private final AsyncCacheLoader<String, Optional<ElkEvent>> loader = new AsyncCacheLoader<>() {
+        @Override
+        public CompletableFuture<Optional<ElkEvent>> asyncLoad(String id, Executor executor) {
+            loads.incrementAndGet();
+            return pending;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Optional<ElkEvent>>> asyncLoadAll(Set<? extends String> ids,
+                                                                              Executor executor) {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(Map.of("1", Optional.empty()));
+        }
+    };
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        EventCache cache = new EventCache(props(10), loader);
+
+        CompletableFuture<Optional<ElkEvent>> a = cache.get("1");
+        CompletableFuture<Optional<ElkEvent>> b = cache.get("1");
+        pending.complete(Optional.of(EVENT));
+
+        assertThat(a.join()).contains(EVENT);
+        assertThat(b.join()).contains(EVENT);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void zeroSizeLoadsEveryTimeAndKeepsNothing() {
+        EventCache cache = new EventCache(props(0), loader);
+
+        cache.put("1", EVENT);
+        CompletableFuture<Optional<ElkEvent>> a = cache.get("1");
+        CompletableFuture<Optional<ElkEvent>> b = cache.get("1");
+        pending.complete(Optional.empty());
+        cache.getAll(List.of("1")).join();
+        cache.getAll(List.of("1")).join();
+
+        assertThat(a.join()).isEmpty();
+        assertThat(b.join()).isEmpty();
+        assertThat(loads).hasValue(4);
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    void updateAppliesToTheLoadedEntryOnceItArrives() {
+        EventCache cache = new EventCache(props(10), loader);
+
+        cache.update("1", ev -> ev.map(e -> new ElkEvent("1", "Renamed", e.eventType(), e.datetime(),
+                e.place(), e.description(), e.subTopics())));
+        CompletableFuture<Optional<ElkEvent>> read = cache.get("1");
+        assertThat(read).isNotDone();
+        pending.complete(Optional.of(EVENT));
+
+        assertThat(read.join()).get().extracting(ElkEvent::title).isEqualTo("Renamed");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void putAbsentAnswersNotFoundWithoutLoading() {
+        EventCache cache = new EventCache(props(10), loader);
+
+        cache.put("1", EVENT);
+        cache.putAbsent("1");
+
+        assertThat(cache.get("1").join()).isEmpty();
+        assertThat(loads).hasValue(0);
+    }
+
+    private static CacheProperties props(long maxSize) {
+        return new CacheProperties(maxSize, Duration.ofMinutes(5), Duration.ofSeconds(5));
+    }
+}
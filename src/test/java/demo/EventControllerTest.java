@@ -0,0 +1,55 @@
+package demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class EventControllerTest {
+
+    private static final String HITS = """
+            {"took":1,"timed_out":false,"_shards":{"total":1,"successful":1,"failed":0},
+             "hits":{"hits":[{"_index":"events","_id":"a1","_score":1.0,
+               "_source":{"title":"Kafka"}}]}}""";
+
+    private FakeCluster cluster;
+    private EventService events;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void start() throws IOException {
+        cluster = new FakeCluster();
+        events = cluster.service(Map.of());
+        mvc = MockMvcBuilders.standaloneSetup(new EventController(events, EventService.objectMapper(),
+                new ApiProperties(ApiProperties.Mode.BLOCKING, true))).build();
+    }
+
+    @AfterEach
+    void stop() {
+        events.close();
+        cluster.close();
+    }
+
+    @Test
+    void unknownStreamFormatIsABadRequest() throws Exception {
+        mvc.perform(get("/query/all").param("stream", "ndjsn"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void projectionIsNotPassedThrough() throws Exception {
+        cluster.on("POST /events/_search", req -> new FakeCluster.Response(200, HITS));
+
+        mvc.perform(get("/query/all").param("fields", "id,title"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[{\"id\":\"a1\",\"title\":\"Kafka\"}]", true));
+    }
+}
@@ -0,0 +1,29 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventPageTest {
+
+    @Test
+    void cursorRoundTrips() {
+        EventPage.Cursor cursor = new EventPage.Cursor("46ToAwMDaWR5BXV1aWQy+/=", 4_294_967_301L);
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(EventPage.Cursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", ".12", "abc.", "abc.x1", "abc.-4", "a*c.12", "abc.99999999999999999999"})
+    void malformedCursorIsAnIllegalArgument(String cursor) {
+        assertThatThrownBy(() -> EventPage.Cursor.decode(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cursor");
+    }
+}
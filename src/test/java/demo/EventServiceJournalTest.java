@@ -0,0 +1,66 @@
+package demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Journal mode reads against a cluster that never takes a replay: whatever a read returns
+ * comes from the journaled writes in the event cache, not from Elasticsearch.
+ */
+class EventServiceJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private FakeCluster cluster;
+    private EventService events;
+
+    @BeforeEach
+    void start() throws IOException {
+        cluster = new FakeCluster();
+        events = cluster.service(Map.of(
+                "events.journal.enabled", "true",
+                "events.journal.directory", dir.toString(),
+                "events.journal.segment-size", "64KB",
+                "events.journal.initial-backoff", "1s"));
+    }
+
+    @AfterEach
+    void stop() {
+        events.close();
+        cluster.close();
+    }
+
+    @Test
+    void updateOfAJournaledStoreIsReadBackBeforeReplay() throws IOException {
+        events.store(event("Kafka"));
+        events.update("e1", event("Kafka Streams"));
+
+        assertThat(events.get("e1")).isEqualTo(event("Kafka Streams"));
+        assertThat(cluster.requests).noneMatch(r -> r.path().startsWith("/events/_doc"));
+    }
+
+    @Test
+    void deleteOfAJournaledStoreIsReadBackBeforeReplay() throws IOException {
+        events.store(event("Kafka"));
+        events.delete("e1");
+
+        assertThat(events.get("e1")).isNull();
+        assertThat(cluster.requests).noneMatch(r -> r.path().startsWith("/events/_doc"));
+    }
+
+    private static ElkEvent event(String title) {
+        return new ElkEvent("e1", title, EventType.WORKSHOP, Instant.parse("2024-07-05T13:00:00Z"),
+                "Berlin", null, List.of("streaming"));
+    }
+}
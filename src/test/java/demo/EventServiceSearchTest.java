@@ -0,0 +1,65 @@
+package demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventServiceSearchTest {
+
+    // stored without an id, so it only has the _id Elasticsearch was given
+    private static final String HITS = """
+            {"took":1,"timed_out":false,"_shards":{"total":1,"successful":1,"failed":0},
+             "hits":{"hits":[{"_index":"events","_id":"a1","_score":1.0,
+               "_source":{"title":"Kafka","eventType":"WORKSHOP","datetime":"2024-07-05T13:00:00Z"}}]}}""";
+    private static final String BARE_HITS = """
+            {"took":1,"timed_out":false,"_shards":{"total":1,"successful":1,"failed":0},
+             "hits":{"hits":[{"_index":"events","_id":"a1","_score":1.0}]}}""";
+
+    private final ObjectMapper json = new ObjectMapper();
+    private FakeCluster cluster;
+    private EventService events;
+
+    @BeforeEach
+    void start() throws IOException {
+        cluster = new FakeCluster();
+        events = cluster.service(Map.of());
+    }
+
+    @AfterEach
+    void stop() {
+        events.close();
+        cluster.close();
+    }
+
+    @Test
+    void summaryTakesTheIdFromTheHitAndNotFromTheSource() throws IOException {
+        cluster.on("POST /events/_search", req -> new FakeCluster.Response(200, HITS));
+
+        List<ElkEvent> found = events.search(EventQuery.all().withFields(EventQuery.SUMMARY));
+
+        assertThat(found).containsExactly(new ElkEvent("a1", "Kafka", EventType.WORKSHOP,
+                Instant.parse("2024-07-05T13:00:00Z"), null, null, null));
+        JsonNode source = json.readTree(cluster.requests.getLast().body()).get("_source");
+        assertThat(source.get("includes")).extracting(JsonNode::asText)
+                .containsExactly("title", "eventType", "datetime");
+    }
+
+    @Test
+    void idAloneFetchesNoSource() throws IOException {
+        cluster.on("POST /events/_search", req -> new FakeCluster.Response(200, BARE_HITS));
+
+        List<ElkEvent> found = events.search(EventQuery.all().withFields(List.of("id")));
+
+        assertThat(found).containsExactly(new ElkEvent("a1", null, null, null, null, null, null));
+        assertThat(json.readTree(cluster.requests.getLast().body()).get("_source").asBoolean(true)).isFalse();
+    }
+}
@@ -0,0 +1,101 @@
+package demo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Just enough of an Elasticsearch node over HTTP for a whole {@link EventService}: the
+ * index exists, its mapping is taken, a document is never found and anything else is
+ * answered 503 unless a handler is registered for {@code "<METHOD> <path>"}.
+ */
+class FakeCluster implements AutoCloseable {
+
+    record Request(String method, String path, String body) { }
+
+    record Response(int status, String body) { }
+
+    /** Every request received, in order. */
+    final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Function<Request, Response>> handlers = new ConcurrentHashMap<>();
+    private final HttpServer http;
+
+    FakeCluster() throws IOException {
+        http = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        http.createContext("/", this::answer);
+        http.start();
+        on("HEAD /events", req -> new Response(200, null));
+        on("PUT /events/_mapping", req -> new Response(200, "{\"acknowledged\":true}"));
+    }
+
+    FakeCluster on(String methodAndPath, Function<Request, Response> handler) {
+        handlers.put(methodAndPath, handler);
+        return this;
+    }
+
+    /** A service on this node, with every property at its default but for {@code overrides}. */
+    EventService service(Map<String, String> overrides) throws IOException {
+        Map<String, String> settings = new HashMap<>(overrides);
+        settings.put("events.client.nodes", "http://localhost:" + http.getAddress().getPort());
+        settings.putIfAbsent("events.startup.async-bootstrap", "false");
+        settings.putIfAbsent("events.get.collapse-window", "0s");
+        Binder binder = new Binder(new MapConfigurationPropertySource(settings));
+        return new EventService(props(binder, ClientProperties.class), props(binder, WriteProperties.class),
+                props(binder, QueryProperties.class), props(binder, CacheProperties.class),
+                props(binder, GetProperties.class), props(binder, ImportProperties.class),
+                props(binder, ExportProperties.class), props(binder, QueryCacheProperties.class),
+                new SimpleMeterRegistry(), props(binder, MetricsProperties.class),
+                props(binder, PartitionProperties.class), props(binder, StartupProperties.class),
+                props(binder, JournalProperties.class), props(binder, SuggestProperties.class),
+                props(binder, LimitProperties.class));
+    }
+
+    private static <T> T props(Binder binder, Class<T> type) {
+        return binder.bindOrCreate(type.getAnnotation(ConfigurationProperties.class).value(), type);
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+    }
+
+    private void answer(HttpExchange ex) throws IOException {
+        String path = ex.getRequestURI().getPath();
+        InputStream in = "gzip".equals(ex.getRequestHeaders().getFirst("Content-Encoding"))
+                ? new GZIPInputStream(ex.getRequestBody())
+                : ex.getRequestBody();
+        Request request = new Request(ex.getRequestMethod(), path, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        requests.add(request);
+        Function<Request, Response> handler = handlers.get(request.method() + " " + path);
+        Response response = handler != null ? handler.apply(request)
+                : request.method().equals("GET") && path.startsWith("/events/_doc/")
+                ? new Response(404, "{\"_index\":\"events\",\"_id\":\"" + path.substring(13) + "\",\"found\":false}")
+                : new Response(503, "{\"error\":{\"type\":\"unavailable\",\"reason\":\"not faked\"},\"status\":503}");
+        ex.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        if (response.body() == null) {
+            ex.sendResponseHeaders(response.status(), -1);
+        } else {
+            byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(response.status(), bytes.length);
+            ex.getResponseBody().write(bytes);
+        }
+        ex.close();
+    }
+}
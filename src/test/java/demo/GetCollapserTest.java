@@ -0,0 +1,109 @@
+package demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GetCollapserTest {
+
+    private static final ElkEvent EVENT = new ElkEvent("a", "Title", EventType.WORKSHOP,
+            Instant.parse("2024-07-05T13:00:00Z"), "Berlin", "Workshop", List.of());
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private GetCollapser collapser;
+
+    @AfterEach
+    void close() {
+        collapser.close();
+    }
+
+    @Test
+    void lookupsWithinTheWindowShareOneMultiGet() throws Exception {
+        collapser = collapser(Duration.ofMillis(50), 10, ids -> {
+            batches.add(List.copyOf(ids));
+            return CompletableFuture.completedFuture(Map.of("a", Optional.of(EVENT), "b", Optional.empty()));
+        });
+
+        CompletableFuture<Optional<ElkEvent>> a = collapser.get("a");
+        CompletableFuture<Optional<ElkEvent>> b = collapser.get("b");
+        CompletableFuture<Optional<ElkEvent>> again = collapser.get("a");
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).contains(EVENT);
+        assertThat(b.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(again).isSameAs(a);
+        assertThat(batches).containsExactly(List.of("a", "b"));
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        collapser = collapser(Duration.ofMinutes(1), 2, ids -> {
+            batches.add(List.copyOf(ids));
+            return CompletableFuture.completedFuture(Map.of("a", Optional.empty(), "b", Optional.empty()));
+        });
+
+        CompletableFuture<Optional<ElkEvent>> a = collapser.get("a");
+        collapser.get("b");
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void idMissingFromTheResponseFailsOnlyThatCaller() throws Exception {
+        collapser = collapser(Duration.ofMillis(10), 10,
+                ids -> CompletableFuture.completedFuture(Map.of("a", Optional.of(EVENT))));
+
+        CompletableFuture<Optional<ElkEvent>> a = collapser.get("a");
+        CompletableFuture<Optional<ElkEvent>> b = collapser.get("b");
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).contains(EVENT);
+        assertThatThrownBy(() -> b.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void multiGetThrowingFailsEveryCaller() {
+        collapser = collapser(Duration.ofMillis(10), 10, ids -> {
+            throw new IllegalStateException("Index bootstrap still running");
+        });
+
+        CompletableFuture<Optional<ElkEvent>> a = collapser.get("a");
+        CompletableFuture<Optional<ElkEvent>> b = collapser.get("b");
+
+        for (CompletableFuture<Optional<ElkEvent>> f : List.of(a, b)) {
+            assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS))
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessageContaining("bootstrap");
+        }
+    }
+
+    @Test
+    void multiGetThrowingOnAFullBatchFailsEveryCaller() {
+        collapser = collapser(Duration.ofMinutes(1), 2, ids -> {
+            throw new IllegalStateException("serialization failed");
+        });
+
+        CompletableFuture<Optional<ElkEvent>> a = collapser.get("a");
+        CompletableFuture<Optional<ElkEvent>> b = collapser.get("b");
+
+        assertThat(a).isCompletedExceptionally();
+        assertThat(b).isCompletedExceptionally();
+    }
+
+    private static GetCollapser collapser(
+            Duration window, int maxBatch,
+            Function<Collection<String>, CompletableFuture<Map<String, Optional<ElkEvent>>>> mget) {
+        return new GetCollapser(new GetProperties(window, maxBatch), mget);
+    }
+}
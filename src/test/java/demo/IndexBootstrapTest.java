@@ -0,0 +1,58 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexBootstrapTest {
+
+    @Test
+    void readsAndWritesAreRefusedUntilTheBootstrapSucceeds() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        try (IndexBootstrap bootstrap = new IndexBootstrap(() -> {
+            if (attempts.incrementAndGet() < 3 || !released.isDone()) {
+                throw new IOException("connection refused");
+            }
+        }, new StartupProperties(true, Duration.ofMillis(1), Duration.ofMillis(5)))) {
+            bootstrap.start();
+
+            assertThatThrownBy(bootstrap::checkReady).isInstanceOf(IndexNotReadyException.class);
+            AtomicInteger calls = new AtomicInteger();
+            CompletableFuture<String> read = bootstrap.whenReady(() -> {
+                calls.incrementAndGet();
+                return CompletableFuture.completedFuture("hit");
+            });
+            assertThatThrownBy(read::join).cause().isInstanceOf(IndexNotReadyException.class);
+            assertThat(calls).hasValue(0);
+
+            released.complete(null);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!bootstrap.ready() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertThat(bootstrap.ready()).isTrue();
+            assertThat(bootstrap.attempts()).isGreaterThanOrEqualTo(3);
+            assertThat(bootstrap.lastError()).isNull();
+            assertThat(bootstrap.whenReady(() -> CompletableFuture.completedFuture("hit")).join()).isEqualTo("hit");
+        }
+    }
+
+    @Test
+    void inlineBootstrapThrowsItsFailure() {
+        try (IndexBootstrap bootstrap = new IndexBootstrap(() -> {
+            throw new IOException("connection refused");
+        }, new StartupProperties(false, Duration.ofMillis(1), Duration.ofMillis(5)))) {
+            assertThatThrownBy(bootstrap::start).isInstanceOf(IOException.class).hasMessage("connection refused");
+            assertThat(bootstrap.ready()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalReplayerTest {
+
+    @TempDir
+    Path dir;
+
+    private final StubTransport transport = new StubTransport();
+    private final ObjectWriter entries = EventService.objectMapper().writerFor(JournalEntry.class);
+    private final List<JournalEntry> replayed = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private WriteJournal journal;
+    private JournalReplayer replayer;
+
+    @BeforeEach
+    void open() throws IOException {
+        journal = new WriteJournal(WriteJournalTest.props(dir, 4096, 1 << 20));
+    }
+
+    @AfterEach
+    void close() {
+        if (replayer != null) {
+            replayer.close();
+        }
+        journal.close();
+    }
+
+    @Test
+    void replaysInBulkAndMovesTheCheckpoint() throws Exception {
+        transport.on("es/bulk", (BulkRequest req) -> response(req, 200));
+        append("a");
+        append("b");
+
+        start();
+        await(() -> journal.pending() == 0);
+
+        assertThat(transport.requests).hasSize(1);
+        assertThat(((BulkRequest) transport.requests.getFirst()).operations())
+                .extracting(op -> op.delete().id()).containsExactly("a", "b");
+        assertThat(replayed).extracting(JournalEntry::id).containsExactly("a", "b");
+        assertThat(journal.depth()).isZero();
+    }
+
+    @Test
+    void throttledItemResendsTheBatch() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        transport.on("es/bulk", (BulkRequest req) -> response(req, attempts.incrementAndGet() == 1 ? 429 : 200));
+        append("a");
+
+        start();
+        await(() -> journal.pending() == 0);
+
+        assertThat(attempts).hasValue(2);
+        assertThat(counter("events.journal.replay.failures")).isEqualTo(1);
+        assertThat(replayed).extracting(JournalEntry::id).containsExactly("a");
+    }
+
+    @Test
+    void permanentFailuresAndUnreadableEntriesAreDropped() throws Exception {
+        transport.on("es/bulk", (BulkRequest req) -> response(req, 404));
+        append("a");
+        journal.append("not json".getBytes(StandardCharsets.UTF_8));
+
+        start();
+        await(() -> journal.pending() == 0);
+
+        assertThat(counter("events.journal.dropped")).isEqualTo(2);
+        assertThat(transport.requests).hasSize(1);
+    }
+
+    private void start() {
+        replayer = new JournalReplayer(new ElasticsearchClient(transport), journal,
+                WriteJournalTest.props(dir, 4096, 1 << 20),
+                batch -> batch.stream().map(e -> BulkOperation.of(o -> o.delete(d -> d.index("events").id(e.id()))))
+                        .toList(),
+                replayed::addAll);
+        replayer.bindTo(registry);
+    }
+
+    private void append(String id) throws IOException {
+        journal.append(entries.writeValueAsBytes(new JournalEntry(JournalEntry.Op.DELETE, id, null)));
+    }
+
+    private double counter(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("timed out").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /** Every item of {@code request} answered with {@code status}. */
+    private static BulkResponse response(BulkRequest request, int status) {
+        List<BulkResponseItem> items = request.operations().stream().map(op -> BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Delete).index("events").id(op.delete().id()).status(status);
+            if (status >= 300) {
+                i.error(e -> e.type(status == 429 ? "es_rejected_execution_exception" : "not_found").reason("no"));
+            } else {
+                i.result("deleted");
+            }
+            return i;
+        })).toList();
+        return BulkResponse.of(r -> r.errors(status >= 300).took(1).items(items));
+    }
+}
@@ -0,0 +1,84 @@
+package demo;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Node;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareNodeSelectorTest {
+
+    private static final HttpHost A = HttpHost.create("http://es1:9200");
+    private static final HttpHost B = HttpHost.create("http://es2:9200");
+    private static final HttpHost C = HttpHost.create("http://es3:9200");
+
+    private final LatencyAwareNodeSelector selector =
+            new LatencyAwareNodeSelector(3.0, Duration.ofMinutes(1).toNanos(), 5, 2);
+
+    @Test
+    void slowNodeIsEjectedOnlyAfterEnoughSamples() {
+        record(A, 10, 5);
+        record(B, 10, 5);
+        record(C, 100, 4);
+        assertThat(select(A, B, C)).containsExactly(A, B, C);
+
+        record(C, 100, 1);
+        assertThat(select(A, B, C)).containsExactly(A, B);
+        assertThat(selector.latencies()).containsEntry("es3:9200", -1.0);
+    }
+
+    @Test
+    void unmeasuredNodeDoesNotSetTheBar() {
+        record(A, 1, 1);
+        record(B, 100, 5);
+        record(C, 100, 5);
+
+        assertThat(select(A, B, C)).containsExactly(A, B, C);
+    }
+
+    @Test
+    void ejectionStopsAtTheMinimumOfLiveNodes() {
+        record(A, 10, 5);
+        record(B, 100, 5);
+        record(C, 100, 5);
+
+        assertThat(select(A, B, C)).hasSize(2).contains(A);
+        assertThat(select(A, B, C)).hasSize(2).contains(A);
+    }
+
+    @Test
+    void twoNodesAreNeverThinnedWithTheDefaultFloor() {
+        record(A, 10, 5);
+        record(B, 100, 5);
+
+        assertThat(select(A, B)).containsExactly(A, B);
+    }
+
+    @Test
+    void allNodesAreUsedWhenTooFewAreLeftAfterEjections() {
+        record(A, 10, 5);
+        record(B, 10, 5);
+        record(C, 100, 5);
+        assertThat(select(A, B, C)).containsExactly(A, B);
+
+        // B left the cluster: A alone is under the floor, so C is tried again
+        assertThat(select(A, C)).containsExactly(A, C);
+    }
+
+    private void record(HttpHost host, long millis, int times) {
+        for (int i = 0; i < times; i++) {
+            selector.record(host, Duration.ofMillis(millis).toNanos());
+        }
+    }
+
+    private List<HttpHost> select(HttpHost... hosts) {
+        List<Node> candidates = new ArrayList<>(Stream.of(hosts).map(Node::new).toList());
+        selector.select(candidates);
+        return candidates.stream().map(Node::getHost).toList();
+    }
+}
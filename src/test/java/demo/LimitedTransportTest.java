@@ -0,0 +1,93 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.indices.RefreshResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimitedTransportTest {
+
+    private final StubTransport stub = new StubTransport();
+    private final LimitProperties props = AdaptiveLimitTest.props(1, 0.2);
+    private final AdaptiveLimit reads = new AdaptiveLimit("read", 1, 10, props);
+    private final AdaptiveLimit writes = new AdaptiveLimit("write", 1, 10, props);
+    private final LimitedTransport transport = new LimitedTransport(stub, reads, writes, props);
+    private final ElasticsearchAsyncClient esAsync = new ElasticsearchAsyncClient(transport);
+    private final ElasticsearchClient es = new ElasticsearchClient(transport);
+
+    @Test
+    void searchOverTheLimitFailsWithoutBeingSent() throws Exception {
+        CompletableFuture<SearchResponse<Void>> pending = new CompletableFuture<>();
+        stub.on("es/search", req -> pending);
+
+        CompletableFuture<SearchResponse<ElkEvent>> first = esAsync.search(s -> s.index("events"), ElkEvent.class);
+        CompletableFuture<SearchResponse<ElkEvent>> second = esAsync.search(s -> s.index("events"), ElkEvent.class);
+
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(OverloadedException.class);
+        assertThat(stub.requests).hasSize(1);
+        assertThat(reads.rejected()).isEqualTo(1);
+        assertThat(first).isNotDone();
+        assertThatThrownBy(() -> es.search(s -> s.index("events"), ElkEvent.class))
+                .isInstanceOf(OverloadedException.class);
+    }
+
+    @Test
+    void adminCallsPassWhileTheLimitsAreFull() throws Exception {
+        stub.on("es/search", req -> new CompletableFuture<>());
+        stub.on("es/indices.refresh", req -> RefreshResponse.of(r -> r.shards(s -> s.total(1).successful(1).failed(0))));
+        esAsync.search(s -> s.index("events"), ElkEvent.class);
+
+        assertThat(esAsync.indices().refresh(r -> r.index("events")).get(5, TimeUnit.SECONDS).shards().successful())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void bulkRefusedWith429IsSentAgain() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        stub.on("es/bulk", (BulkRequest req) -> calls.incrementAndGet() == 1
+                ? error(429)
+                : WritePipelineTest.response(req, Set.of()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        transport.bindTo(registry);
+
+        assertThat(esAsync.bulk(b -> b.operations(o -> o.delete(d -> d.index("events").id("a"))))
+                .get(5, TimeUnit.SECONDS).errors()).isFalse();
+        assertThat(es.bulk(b -> b.operations(o -> o.delete(d -> d.index("events").id("a")))).errors()).isFalse();
+
+        assertThat(calls).hasValue(3);
+        assertThat(registry.get("events.limit.bulk.retries").functionCounter().count()).isEqualTo(1);
+        assertThat(writes.inflight()).isZero();
+    }
+
+    @Test
+    void searchRefusedWith429IsNotRetriedButBacksTheLimitOff() {
+        AdaptiveLimit wide = new AdaptiveLimit("read", 10, 10, props);
+        ElasticsearchAsyncClient client = new ElasticsearchAsyncClient(new LimitedTransport(stub, wide, writes, props));
+        stub.on("es/search", req -> error(429));
+
+        assertThatThrownBy(() -> client.search(s -> s.index("events"), ElkEvent.class).get(5, TimeUnit.SECONDS))
+                .cause().isInstanceOf(ElasticsearchException.class);
+
+        assertThat(stub.requests).hasSize(1);
+        assertThat(wide.limit()).isEqualTo(9);
+        assertThat(wide.inflight()).isZero();
+    }
+
+    private static ElasticsearchException error(int status) {
+        return new ElasticsearchException("test", ErrorResponse.of(e -> e.status(status)
+                .error(c -> c.type("es_rejected_execution_exception").reason("rejected"))));
+    }
+}
@@ -0,0 +1,50 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadOptionsTest {
+
+    @Test
+    void defaultsAndOverrides() {
+        LoadOptions options = LoadOptions.parse(new String[] {
+                "--target=rest", "--rate=50", "--warmup=5s", "--duration=2m", "--mix=GET:3, search:1"});
+
+        assertThat(options.target()).isEqualTo("rest");
+        assertThat(options.rate()).isEqualTo(50);
+        assertThat(options.warmup()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(options.duration()).isEqualTo(Duration.ofMinutes(2));
+        assertThat(options.mix()).isEqualTo(Map.of(LoadGenerator.Op.GET, 3, LoadGenerator.Op.SEARCH, 1));
+        assertThat(options.maxOutstanding()).isEqualTo(10_000);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "--mix=get=abc       | expected op:weight but got 'get=abc'",
+            "--mix=get:abc       | weight of get is not a number",
+            "--mix=get:1,fetch:2 | unknown operation 'fetch'",
+            "--mix=get:-1        | weight of get is negative",
+            "--mix=get:0         | every weight is 0",
+            "--mix=get:1:2       | expected op:weight",
+            "--rate=fast         | --rate=fast: not a number",
+            "--rate=0            | must be positive",
+            "--ids=-5            | must be positive",
+            "--warmup=0s         | --warmup=0s: must be positive",
+            "--duration=-1s      | --duration=-1s: must be positive",
+            "--speed=1           | --speed=1: unknown option",
+            "rate=1              | expected --name=value",
+            "--target=db         | expected es or rest",
+    })
+    void malformedOptionsAreRejectedWithAMessage(String arg, String message) {
+        assertThatThrownBy(() -> LoadOptions.parse(new String[] {arg}))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(message);
+    }
+}
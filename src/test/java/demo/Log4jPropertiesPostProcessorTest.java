@@ -0,0 +1,35 @@
+package demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Log4jPropertiesPostProcessorTest {
+
+    private static final String POLICY = "log4j2.asyncQueueFullPolicy";
+    private static final String THRESHOLD = "log4j2.discardThreshold";
+
+    @AfterEach
+    void clear() {
+        System.clearProperty(POLICY);
+        System.clearProperty(THRESHOLD);
+    }
+
+    @Test
+    void copiesLog4jKeysButLeavesDashDFlagsAlone() {
+        System.setProperty(THRESHOLD, "WARN");
+        MockEnvironment env = new MockEnvironment()
+                .withProperty(POLICY, "Discard")
+                .withProperty(THRESHOLD, "INFO")
+                .withProperty("events.limit.enabled", "false");
+
+        new Log4jPropertiesPostProcessor().postProcessEnvironment(env, new SpringApplication());
+
+        assertThat(System.getProperty(POLICY)).isEqualTo("Discard");
+        assertThat(System.getProperty(THRESHOLD)).isEqualTo("WARN");
+        assertThat(System.getProperty("events.limit.enabled")).isNull();
+    }
+}
@@ -0,0 +1,75 @@
+package demo;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogContextTest {
+
+    @AfterEach
+    void clear() {
+        LogContext.end();
+    }
+
+    @Test
+    void generatedIdsKeepTheUuidFormat() {
+        String id = LogContext.begin(null);
+
+        assertThat(id).matches("[0-9a-f]{32}");
+        assertThat(ThreadContext.get(LogContext.UUID)).isEqualTo(id);
+        assertThat(ThreadContext.get(LogContext.MESSAGE_ID)).matches("MSG-[0-9a-f]{32}");
+    }
+
+    @Test
+    void incomingIdIsReusedAndMessageIdStaysUnique() {
+        LogContext.begin("4bf92f3577b34da6a3ce929d0e0e4736");
+        String first = ThreadContext.get(LogContext.MESSAGE_ID);
+        LogContext.begin("4bf92f3577b34da6a3ce929d0e0e4736");
+
+        assertThat(ThreadContext.get(LogContext.UUID)).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(ThreadContext.get(LogContext.MESSAGE_ID)).isNotEqualTo(first);
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Set<String> messageIds = ConcurrentHashMap.newKeySet();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                pool.execute(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(LogContext.begin(null));
+                        messageIds.add(ThreadContext.get(LogContext.MESSAGE_ID));
+                        LogContext.end();
+                    }
+                });
+            }
+        }
+        assertThat(ids).hasSize(80_000);
+        assertThat(messageIds).hasSize(80_000);
+    }
+
+    @Test
+    void propagateCarriesTheContextAndRestoresTheThreadsOwn() throws Exception {
+        String id = LogContext.begin(null);
+        Function<String, String> task = LogContext.propagate(v -> ThreadContext.get(LogContext.UUID));
+        LogContext.end();
+
+        try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+            String seen = pool.submit(() -> {
+                ThreadContext.put(LogContext.UUID, "worker");
+                String inside = task.apply(null);
+                return inside + "/" + ThreadContext.get(LogContext.UUID);
+            }).get();
+            assertThat(seen).isEqualTo(id + "/worker");
+        }
+    }
+}
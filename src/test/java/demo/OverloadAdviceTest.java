@@ -0,0 +1,63 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OverloadAdviceTest {
+
+    @RestController
+    static class Throwing {
+
+        @GetMapping("/{what}")
+        public String fail(@PathVariable String what) throws IOException {
+            throw switch (what) {
+                case "overloaded" -> new OverloadedException("Too many concurrent reads to Elasticsearch");
+                case "rejected" -> new WriteRejectedException("Write queue full");
+                case "not-ready" -> new IndexNotReadyException("Index not ready");
+                default -> new IOException("broken");
+            };
+        }
+    }
+
+    @Test
+    void shedRequestsGet503WithRetryAfter() throws Exception {
+        MockMvc mvc = mvc(Duration.ofSeconds(3));
+
+        for (String what : new String[] {"overloaded", "rejected", "not-ready"}) {
+            mvc.perform(get("/" + what))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "3"));
+        }
+    }
+
+    @Test
+    void retryAfterIsWholeSecondsAndAtLeastOne() throws Exception {
+        mvc(Duration.ofMillis(200)).perform(get("/overloaded"))
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void otherFailuresAreLeftAlone() {
+        MockMvc mvc = mvc(Duration.ofSeconds(3));
+
+        assertThatThrownBy(() -> mvc.perform(get("/other"))).isInstanceOf(IOException.class).hasMessage("broken");
+    }
+
+    private static MockMvc mvc(Duration retryAfter) {
+        LimitProperties props = new LimitProperties(true, 20, 200, 10, 50, 2, 1.5, 0.9, 0.2,
+                retryAfter, 5, Duration.ofMillis(100));
+        return MockMvcBuilders.standaloneSetup(new Throwing()).setControllerAdvice(new OverloadAdvice(props)).build();
+    }
+}
@@ -0,0 +1,178 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateRequest;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateResponse;
+import co.elastic.clients.elasticsearch.indices.RefreshRequest;
+import co.elastic.clients.elasticsearch.indices.RefreshResponse;
+import co.elastic.clients.elasticsearch.indices.RolloverResponse;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionManagerTest {
+
+    private static final String JAN = "events-2024.01-000001";
+    private static final String FEB = "events-2024.02-000002";
+    private static final String MAR = "events-2024.03-000003";
+    private static final String APR = "events-2024.04-000004";
+
+    private final StubTransport transport = new StubTransport();
+    private final Map<String, Instant> bounds = new LinkedHashMap<>();
+    private final List<List<String>> refreshed = new ArrayList<>();
+    private Runnable duringSearch = () -> { };
+    private String write = MAR;
+    private final PartitionManager partitions = new PartitionManager(new ElasticsearchClient(transport),
+            new PartitionProperties(true, "month", Duration.ofDays(30), DataSize.ofGigabytes(50), 0,
+                    Duration.ofDays(90), Duration.ZERO, Duration.ofMinutes(5)), "events");
+
+    PartitionManagerTest() {
+        transport.on("es/search", (SearchRequest req) -> {
+            duringSearch.run();
+            return bounds();
+        });
+        transport.on("es/indices.refresh", (RefreshRequest req) -> {
+            refreshed.add(req.index());
+            return RefreshResponse.of(r -> r.shards(s -> s.total(1).successful(1).failed(0)));
+        });
+        transport.on("es/indices.exists_alias", req -> new BooleanResponse(true));
+        // the write alias stays on every partition it rolled over from, as a read-only member
+        transport.on("es/indices.get_alias", req -> GetAliasResponse.of(r -> {
+            bounds.keySet().forEach(index -> r.aliases(index, a -> a.aliases("events-write",
+                    d -> d.isWriteIndex(index.equals(write)))));
+            return r;
+        }));
+        bounds.put(JAN, Instant.parse("2024-01-20T00:00:00Z"));
+        bounds.put(FEB, Instant.parse("2024-02-20T00:00:00Z"));
+        bounds.put(MAR, null);
+    }
+
+    @AfterEach
+    void close() {
+        partitions.close();
+    }
+
+    @Test
+    void readAliasUntilBoundsAreKnownOrWithoutADate() throws Exception {
+        assertThat(partitions.indicesAfter("2024-02-01")).containsExactly("events");
+
+        partitions.refreshBounds();
+
+        assertThat(partitions.indicesAfter("next tuesday")).containsExactly("events");
+    }
+
+    @Test
+    void onlyPartitionsWithLaterEventsAndTheWritePartition() throws Exception {
+        partitions.refreshBounds();
+
+        assertThat(partitions.indicesAfter("2024-02-01")).containsExactly(FEB, MAR);
+        assertThat(partitions.indicesAfter("2024-02-01T00:00:00Z")).containsExactly(FEB, MAR);
+        assertThat(partitions.indicesAfter("2023-12-31")).containsExactlyInAnyOrder(JAN, FEB, MAR);
+        assertThat(partitions.indicesAfter("2024-06-01")).containsExactly(MAR);
+    }
+
+    @Test
+    void partitionRolledOverFromIsLeftOutOnceItsEventsAreTooOld() throws Exception {
+        partitions.refreshBounds();
+        bounds.put(MAR, Instant.parse("2024-03-20T00:00:00Z"));
+        transport.on("es/indices.rollover", req -> {
+            bounds.put(APR, null);
+            write = APR;
+            return RolloverResponse.of(r -> r.acknowledged(true).shardsAcknowledged(true).dryRun(false)
+                    .rolledOver(true).oldIndex(MAR).newIndex(APR).conditions(Map.of()));
+        });
+        transport.on("es/indices.get", req -> GetIndexResponse.of(r -> r.indices(Map.of())));
+
+        partitions.maintain();
+
+        assertThat(partitions.indicesAfter("2024-06-01")).containsExactly(APR);
+        assertThat(partitions.indicesAfter("2024-03-01")).containsExactlyInAnyOrder(MAR, APR);
+    }
+
+    @Test
+    void touchedPartitionIsSearchedUntilItIsMeasuredAgain() throws Exception {
+        partitions.refreshBounds();
+        partitions.touched(JAN);
+
+        assertThat(partitions.indicesAfter("2024-02-01")).contains(JAN);
+
+        partitions.refreshBounds();
+
+        assertThat(refreshed).containsExactly(List.of(JAN));
+        assertThat(partitions.indicesAfter("2024-02-01")).doesNotContain(JAN);
+    }
+
+    @Test
+    void writeAcknowledgedWhileMeasuringKeepsItsMark() throws Exception {
+        partitions.refreshBounds();
+        partitions.touched(JAN);
+        duringSearch = () -> partitions.touched(JAN);
+
+        partitions.refreshBounds();
+
+        assertThat(partitions.indicesAfter("2024-02-01")).contains(JAN);
+    }
+
+    @Test
+    void touchedAllCoversEveryMeasuredPartition() throws Exception {
+        partitions.refreshBounds();
+
+        partitions.touchedAll();
+
+        assertThat(partitions.indicesAfter("2024-06-01")).containsExactlyInAnyOrder(JAN, FEB, MAR);
+    }
+
+    @Test
+    void resetPutsTheTemplateBeforeTheFirstPartition() throws Exception {
+        transport.on("es/indices.get", req -> GetIndexResponse.of(r -> r.indices(Map.of())));
+        transport.on("es/indices.put_index_template", req -> PutIndexTemplateResponse.of(r -> r.acknowledged(true)));
+        transport.on("es/indices.create", req -> CreateIndexResponse.of(r -> r
+                .index("events-2024.01-000001").acknowledged(true).shardsAcknowledged(true)));
+
+        partitions.reset();
+
+        List<Object> sent = transport.requests;
+        int template = indexOf(sent, PutIndexTemplateRequest.class);
+        assertThat(template).isNotNegative().isLessThan(indexOf(sent, CreateIndexRequest.class));
+    }
+
+    private static int indexOf(List<Object> requests, Class<?> type) {
+        for (int i = 0; i < requests.size(); i++) {
+            if (type.isInstance(requests.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private SearchResponse<Void> bounds() {
+        List<StringTermsBucket> buckets = new ArrayList<>();
+        bounds.forEach((index, max) -> buckets.add(StringTermsBucket.of(b -> b
+                .key(index)
+                .docCount(max == null ? 0 : 1)
+                .aggregations("latest", a -> a.max(m -> m.value(max == null ? null : (double) max.toEpochMilli()))))));
+        return SearchResponse.of(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(List.of()))
+                .aggregations("partitions", a -> a.sterms(t -> t.buckets(b -> b.array(buckets)))));
+    }
+}
@@ -0,0 +1,124 @@
+package demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCacheTest {
+
+    private static final EventQuery QUERY = EventQuery.byTitle("kafka");
+
+    /** Searches that stay pending until the test completes them. */
+    private final List<CompletableFuture<List<ElkEvent>>> searches = new CopyOnWriteArrayList<>();
+    private final Function<EventQuery, CompletableFuture<List<ElkEvent>>> search = q -> {
+        CompletableFuture<List<ElkEvent>> f = new CompletableFuture<>();
+        searches.add(f);
+        return f;
+    };
+
+    @Test
+    void concurrentMissesShareOneSearch() {
+        QueryCache cache = cache(Duration.ZERO);
+
+        CompletableFuture<List<ElkEvent>> a = cache.get(QUERY, search);
+        CompletableFuture<List<ElkEvent>> b = cache.get(EventQuery.byTitle("  kafka "), search);
+        searches.get(0).complete(events("1"));
+
+        assertThat(searches).hasSize(1);
+        assertThat(a.join()).isSameAs(b.join());
+        assertThat(cache.stats().kinds().get(EventQuery.Kind.TITLE).misses()).isEqualTo(1);
+    }
+
+    @Test
+    void callersOfAStaleResultShareOneRefresh() {
+        QueryCache cache = cache(Duration.ZERO);
+        cache.get(QUERY, search);
+        searches.get(0).complete(events("1"));
+
+        cache.invalidate();
+        List<CompletableFuture<List<ElkEvent>>> callers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            callers.add(cache.get(QUERY, search));
+        }
+
+        assertThat(searches).hasSize(2);
+        searches.get(1).complete(events("1", "2"));
+        assertThat(callers).allSatisfy(f -> assertThat(f.join()).extracting(ElkEvent::id).containsExactly("1", "2"));
+        assertThat(cache.get(QUERY, search).join()).hasSize(2);
+        assertThat(searches).hasSize(2);
+    }
+
+    @Test
+    void failedRefreshIsRetriedByTheNextCaller() {
+        QueryCache cache = cache(Duration.ZERO);
+        cache.get(QUERY, search);
+        searches.get(0).complete(events("1"));
+
+        cache.invalidate();
+        CompletableFuture<List<ElkEvent>> failed = cache.get(QUERY, search);
+        searches.get(1).completeExceptionally(new IllegalStateException("boom"));
+        assertThat(failed).isCompletedExceptionally();
+
+        CompletableFuture<List<ElkEvent>> retried = cache.get(QUERY, search);
+        searches.get(2).complete(events("2"));
+        assertThat(retried.join()).extracting(ElkEvent::id).containsExactly("2");
+    }
+
+    @Test
+    void staleResultIsServedWithinTheBound() {
+        QueryCache cache = cache(Duration.ofMinutes(1));
+        cache.get(QUERY, search);
+        searches.get(0).complete(events("1"));
+
+        cache.invalidate();
+
+        assertThat(cache.get(QUERY, search).join()).extracting(ElkEvent::id).containsExactly("1");
+        assertThat(searches).hasSize(1);
+    }
+
+    @Test
+    void zeroBytesSearchesEveryTime() {
+        QueryCache cache = new QueryCache(
+                new QueryCacheProperties(DataSize.ofBytes(0), Duration.ofMinutes(1), Duration.ZERO));
+
+        cache.get(QUERY, search);
+        cache.get(QUERY, search);
+
+        assertThat(searches).hasSize(2);
+    }
+
+    @Test
+    void getIfFreshServesOnlyALoadedCurrentResultAndLoadsNothing() {
+        QueryCache cache = cache(Duration.ZERO);
+
+        assertThat(cache.getIfFresh(QUERY)).isNull();
+        cache.get(QUERY, search);
+        assertThat(cache.getIfFresh(QUERY)).isNull();                 // still loading
+        searches.get(0).complete(events("1"));
+        assertThat(cache.getIfFresh(EventQuery.byTitle(" kafka"))).extracting(ElkEvent::id).containsExactly("1");
+
+        cache.invalidate();
+        assertThat(cache.getIfFresh(QUERY)).isNull();
+        assertThat(searches).hasSize(1);
+        assertThat(cache.stats().kinds().get(EventQuery.Kind.TITLE).hits()).isEqualTo(1);
+    }
+
+    private static QueryCache cache(Duration maxStaleness) {
+        return new QueryCache(new QueryCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), maxStaleness));
+    }
+
+    private static List<ElkEvent> events(String... ids) {
+        return Arrays.stream(ids)
+                .map(id -> new ElkEvent(id, "Kafka " + id, EventType.TECH_TALK, null, null, null, List.of()))
+                .toList();
+    }
+}
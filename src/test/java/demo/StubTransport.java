@@ -0,0 +1,89 @@
+package demo;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.DefaultTransportOptions;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Answers the typed client from handlers registered per endpoint id, e.g. {@code es/bulk},
+ * without a cluster. A handler returns the response, a future of it, or a Throwable to
+ * fail with; requests to endpoints without one fail.
+ */
+class StubTransport implements ElasticsearchTransport {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper(EventService.objectMapper());
+    private final Map<String, Function<Object, Object>> handlers = new ConcurrentHashMap<>();
+
+    /** Every request sent, in order. */
+    final List<Object> requests = new CopyOnWriteArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    <RequestT> StubTransport on(String endpointId, Function<RequestT, Object> handler) {
+        handlers.put(endpointId, (Function<Object, Object>) handler);
+        return this;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options)
+            throws IOException {
+        try {
+            return performRequestAsync(request, endpoint, options).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(
+            RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+        requests.add(request);
+        Function<Object, Object> handler = handlers.get(endpoint.id());
+        if (handler == null) {
+            return CompletableFuture.failedFuture(new IOException("No stub for " + endpoint.id()));
+        }
+        Object result;
+        try {
+            result = handler.apply(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (result instanceof CompletableFuture<?> future) {
+            return (CompletableFuture<ResponseT>) future;
+        }
+        if (result instanceof Throwable t) {
+            return CompletableFuture.failedFuture(t);
+        }
+        return CompletableFuture.completedFuture((ResponseT) result);
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+        return mapper;
+    }
+
+    @Override
+    public TransportOptions options() {
+        return DefaultTransportOptions.EMPTY;
+    }
+
+    @Override
+    public void close() {
+    }
+}
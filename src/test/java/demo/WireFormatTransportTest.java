@@ -0,0 +1,226 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.TransportOptions;
+import co.elastic.clients.transport.http.TransportHttpClient;
+import co.elastic.clients.util.BinaryData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.json.stream.JsonParser;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WireFormatTransportTest {
+
+    private static final String SEARCH = """
+            {"took":1,"timed_out":false,"_shards":{"total":1,"successful":1,"failed":0},
+             "hits":{"hits":[{"_index":"events","_id":"1","_score":1.0,
+               "_source":{"id":"1","title":"Kafka","eventType":"WORKSHOP","datetime":"2024-07-05T13:00:00Z"}}]}}""";
+    private static final String BULK = """
+            {"took":1,"errors":false,"items":[{"index":{"_index":"events","_id":"1","status":201,"result":"created"}}]}""";
+    private static final String NOT_FOUND = """
+            {"error":{"type":"index_not_found_exception","reason":"no such index [events]"},"status":404}""";
+
+    @ParameterizedTest
+    @EnumSource(ClientProperties.Format.class)
+    void searchGoesOutAndComesBackInTheFormat(ClientProperties.Format format) throws IOException {
+        Fake http = new Fake(req -> response(200, SEARCH, format));
+        ElasticsearchClient es = client(http, format);
+
+        SearchResponse<ElkEvent> rsp = es.search(s -> s.index("events").query(EventQuery.byTitle("kafka").toQuery()),
+                ElkEvent.class);
+
+        assertThat(rsp.hits().hits().getFirst().source())
+                .isEqualTo(new ElkEvent("1", "Kafka", EventType.WORKSHOP, Instant.parse("2024-07-05T13:00:00Z"),
+                        null, null, null));
+        TransportHttpClient.Request sent = http.requests.getFirst();
+        assertThat(sent.headers().get("Accept")).contains(subtype(format));
+        assertThat(sent.headers().get("Content-Type")).contains(subtype(format));
+        assertThat(new ObjectMapper(WireFormatTransport.factory(format)).readValue(bytes(sent), Map.class))
+                .containsKey("query");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ClientProperties.Format.class)
+    void bulkLinesAreSeparatedTheWayElasticsearchReadsThem(ClientProperties.Format format) throws IOException {
+        Fake http = new Fake(req -> response(200, BULK, format));
+        ElasticsearchClient es = client(http, format);
+        ElkEvent ev = new ElkEvent("1", "Kafka", EventType.WORKSHOP, null, null, null, null);
+
+        BulkResponse rsp = es.bulk(b -> b.operations(o -> o.index(i -> i.index("events").id("1").document(ev))));
+
+        assertThat(rsp.items()).singleElement().satisfies(item -> assertThat(item.status()).isEqualTo(201));
+        TransportHttpClient.Request sent = http.requests.getFirst();
+        List<Map<String, Object>> lines = switch (format) {
+            case SMILE -> {
+                assertThat(sent.headers().get("Content-Type")).contains("smile");
+                yield lines(bytes(sent), format, (byte) 0xFF);
+            }
+            // CBOR lines go out transcoded, as NDJSON
+            case CBOR, JSON -> {
+                assertThat(sent.headers().get("Content-Type")).contains("json");
+                yield lines(bytes(sent), ClientProperties.Format.JSON, (byte) '\n');
+            }
+        };
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).isEqualTo(Map.of("index", Map.of("_index", "events", "_id", "1")));
+        assertThat(lines.get(1)).containsEntry("title", "Kafka");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ClientProperties.Format.class)
+    void jsonErrorBodyIsTranscodedForTheClient(ClientProperties.Format format) {
+        Fake http = new Fake(req -> response(404, NOT_FOUND, ClientProperties.Format.JSON));
+        ElasticsearchClient es = client(http, format);
+
+        assertThatThrownBy(() -> es.search(s -> s.index("events"), ElkEvent.class))
+                .isInstanceOfSatisfying(ElasticsearchException.class, e -> {
+                    assertThat(e.status()).isEqualTo(404);
+                    assertThat(e.error().type()).isEqualTo("index_not_found_exception");
+                });
+    }
+
+    @ParameterizedTest
+    @EnumSource(ClientProperties.Format.class)
+    void binaryParserGivesFieldNamesAsStrings(ClientProperties.Format format) {
+        JacksonJsonpMapper mapper = WireFormatTransport.mapper(new JacksonJsonpMapper(EventService.objectMapper()), format);
+
+        try (JsonParser p = mapper.jsonProvider().createParser(new ByteArrayInputStream(encode("{\"took\":1}", format)))) {
+            assertThat(p.next()).isEqualTo(JsonParser.Event.START_OBJECT);
+            assertThat(p.next()).isEqualTo(JsonParser.Event.KEY_NAME);
+            assertThat(p.getString()).isEqualTo("took");
+            assertThat(p.next()).isEqualTo(JsonParser.Event.VALUE_NUMBER);
+            assertThat(p.getInt()).isEqualTo(1);
+        }
+    }
+
+    private static ElasticsearchClient client(Fake http, ClientProperties.Format format) {
+        return new ElasticsearchClient(new WireFormatTransport(http, format,
+                new JacksonJsonpMapper(EventService.objectMapper()), null));
+    }
+
+    private static String subtype(ClientProperties.Format format) {
+        return format == ClientProperties.Format.JSON ? "json" : format.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static TransportHttpClient.Response response(int status, String json, ClientProperties.Format format) {
+        String type = format == ClientProperties.Format.JSON ? "application/json" : "application/" + subtype(format);
+        BinaryData body = BinaryData.of(encode(json, format), type);
+        return new TransportHttpClient.Response() {
+            @Override
+            public TransportHttpClient.Node node() {
+                return null;
+            }
+
+            @Override
+            public int statusCode() {
+                return status;
+            }
+
+            @Override
+            public String header(String name) {
+                return name.equalsIgnoreCase("X-Elastic-Product") ? "Elasticsearch" : null;
+            }
+
+            @Override
+            public List<String> headers(String name) {
+                String value = header(name);
+                return value == null ? List.of() : List.of(value);
+            }
+
+            @Override
+            public BinaryData body() {
+                return body;
+            }
+
+            @Override
+            public Object originalResponse() {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static byte[] encode(String json, ClientProperties.Format format) {
+        try {
+            ObjectMapper binary = new ObjectMapper(WireFormatTransport.factory(format));
+            return binary.writeValueAsBytes(new ObjectMapper().readTree(json));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(TransportHttpClient.Request request) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer b : request.body()) {
+            ByteBuffer copy = b.duplicate();
+            byte[] chunk = new byte[copy.remaining()];
+            copy.get(chunk);
+            out.writeBytes(chunk);
+        }
+        return out.toByteArray();
+    }
+
+    /** The documents of a line-per-document {@code body}, each ended by {@code separator}. */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> lines(byte[] body, ClientProperties.Format format, byte separator)
+            throws IOException {
+        ObjectMapper reader = new ObjectMapper(WireFormatTransport.factory(format));
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (int start = 0, i = 0; i < body.length; i++) {
+            if (body[i] == separator) {
+                lines.add(reader.readValue(body, start, i - start, Map.class));
+                start = i + 1;
+            }
+        }
+        return lines;
+    }
+
+    /** Answers every request with {@code handler} and keeps it. */
+    private static final class Fake implements TransportHttpClient {
+
+        final List<Request> requests = new ArrayList<>();
+        private final Function<Request, Response> handler;
+
+        Fake(Function<Request, Response> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public Response performRequest(String endpointId, Node node, Request request, TransportOptions options) {
+            requests.add(request);
+            return handler.apply(request);
+        }
+
+        @Override
+        public CompletableFuture<Response> performRequestAsync(String endpointId, Node node, Request request,
+                                                               TransportOptions options) {
+            return CompletableFuture.completedFuture(performRequest(endpointId, node, request, options));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
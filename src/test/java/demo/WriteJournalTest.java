@@ -0,0 +1,167 @@
+package demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteJournalTest {
+
+    /** Header plus a 20 byte payload. */
+    private static final int ENTRY = 36;
+
+    @TempDir
+    Path dir;
+
+    private final List<WriteJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        opened.forEach(WriteJournal::close);
+    }
+
+    @Test
+    void tornTailIsDroppedOnRecovery() throws IOException {
+        WriteJournal journal = open(1024);
+        journal.append(payload("a"));
+        journal.append(payload("b"));
+        journal.close();
+        overwrite(segment(0), ENTRY + 20, 1);       // b's payload no longer matches its crc
+
+        journal = open(1024);
+
+        assertThat(journal.pending()).isEqualTo(1);
+        assertThat(journal.depth()).isEqualTo(ENTRY);
+        assertThat(text(journal.read(0, 10))).containsExactly("a");
+        assertThat(journal.append(payload("c"))).isEqualTo(ENTRY);
+        assertThat(text(journal.read(0, 10))).containsExactly("a", "c");
+    }
+
+    @Test
+    void fullSegmentRollsOverToOneNamedAfterItsFirstEntry() throws IOException {
+        WriteJournal journal = open(64);
+
+        assertThat(journal.append(payload("a"))).isZero();
+        assertThat(journal.append(payload("b"))).isEqualTo(ENTRY);
+
+        assertThat(segments()).containsExactly(segment(0), segment(ENTRY));
+        List<WriteJournal.Record> records = journal.read(0, 10);
+        assertThat(text(records)).containsExactly("a", "b");
+        assertThat(records.getLast().next()).isEqualTo(2 * ENTRY);
+        assertThatThrownBy(() -> journal.append(new byte[64])).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void commitDeletesSpentSegmentsAndSurvivesReopen() throws IOException {
+        WriteJournal journal = open(64);
+        for (String s : List.of("a", "b", "c")) {
+            journal.append(payload(s));
+        }
+
+        journal.commit(2 * ENTRY, 2);
+
+        assertThat(segments()).containsExactly(segment(2 * ENTRY));
+        assertThat(journal.pending()).isEqualTo(1);
+        journal.close();
+
+        journal = open(64);
+        assertThat(journal.checkpoint()).isEqualTo(2 * ENTRY);
+        assertThat(journal.pending()).isEqualTo(1);
+        assertThat(text(journal.read(journal.checkpoint(), 10))).containsExactly("c");
+    }
+
+    @Test
+    void corruptEntryIsSkippedAndItsSegmentKept() throws IOException {
+        WriteJournal journal = open(64);
+        journal.append(payload("a"));
+        journal.append(payload("b"));
+        journal.append(payload("c"));
+        journal.close();
+        overwrite(segment(0), 20, 1);               // a fails its crc
+        overwrite(segment(ENTRY), 0, 0);            // b has no length
+
+        journal = open(64);
+        List<WriteJournal.Record> records = journal.read(0, 10);
+
+        assertThat(journal.pending()).isEqualTo(3);
+        assertThat(records).extracting(WriteJournal.Record::position).containsExactly(0L, (long) ENTRY, 2L * ENTRY);
+        assertThat(records.get(0).payload()).isNull();
+        assertThat(records.get(1).payload()).isNull();
+        assertThat(records.get(1).next()).isEqualTo(2 * ENTRY);
+        assertThat(text(records.subList(2, 3))).containsExactly("c");
+        assertThat(dir.resolve(segment(0) + ".corrupt")).exists();
+        assertThat(dir.resolve(segment(ENTRY) + ".corrupt")).exists();
+    }
+
+    @Test
+    void directoryIsLockedWhileOpen() throws IOException {
+        WriteJournal journal = open(1024);
+
+        assertThatThrownBy(() -> open(1024)).isInstanceOf(IOException.class).hasMessageContaining("in use");
+
+        journal.close();
+        open(1024).append(payload("a"));
+    }
+
+    @Test
+    void appendBeyondMaxSizeIsRejected() throws IOException {
+        WriteJournal journal = new WriteJournal(props(dir, 1024, 2 * ENTRY));
+        opened.add(journal);
+        journal.append(payload("a"));
+        journal.append(payload("b"));
+
+        assertThatThrownBy(() -> journal.append(payload("c"))).isInstanceOf(WriteRejectedException.class);
+    }
+
+    static JournalProperties props(Path dir, int segmentSize, int maxSize) {
+        return new JournalProperties(true, dir.toString(), DataSize.ofBytes(segmentSize), DataSize.ofBytes(maxSize),
+                JournalProperties.Fsync.ALWAYS, Duration.ofMillis(100), 10, Duration.ofMillis(10),
+                Duration.ofMillis(100));
+    }
+
+    private WriteJournal open(int segmentSize) throws IOException {
+        WriteJournal journal = new WriteJournal(props(dir, segmentSize, 1 << 20));
+        opened.add(journal);
+        return journal;
+    }
+
+    /** 20 bytes starting with {@code s}. */
+    private static byte[] payload(String s) {
+        return String.format("%-20s", s).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<String> text(List<WriteJournal.Record> records) {
+        return records.stream().map(r -> new String(r.payload(), StandardCharsets.US_ASCII).trim()).toList();
+    }
+
+    private static String segment(long base) {
+        return String.format("%020d", base) + ".seg";
+    }
+
+    private List<String> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).filter(f -> f.endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private void overwrite(String segment, int offset, int value) throws IOException {
+        try (FileChannel ch = FileChannel.open(dir.resolve(segment), WRITE)) {
+            ch.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), offset);
+        }
+    }
+}
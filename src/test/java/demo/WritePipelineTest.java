@@ -0,0 +1,135 @@
+package demo;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WritePipelineTest {
+
+    private final StubTransport transport = new StubTransport();
+    private WritePipeline pipeline;
+
+    @AfterEach
+    void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void failedItemFailsOnlyItsOwnCaller() throws Exception {
+        transport.on("es/bulk", (BulkRequest req) -> response(req, Set.of("b")));
+        pipeline = pipeline(3, 10, Duration.ofSeconds(1), false);
+
+        CompletableFuture<BulkResponseItem> a = pipeline.submit(delete("a"));
+        CompletableFuture<BulkResponseItem> b = pipeline.submit(delete("b"));
+        CompletableFuture<BulkResponseItem> c = pipeline.submit(delete("c"));
+
+        assertThat(a.get(5, TimeUnit.SECONDS).id()).isEqualTo("a");
+        assertThat(c.get(5, TimeUnit.SECONDS).id()).isEqualTo("c");
+        assertThatThrownBy(() -> b.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IOException.class).hasMessageContaining("of b failed [400]");
+        assertThat(transport.requests).hasSize(1);
+        assertThat(pipeline.pending()).isZero();
+    }
+
+    @Test
+    void failedBulkFailsEveryCaller() throws Exception {
+        transport.on("es/bulk", req -> new OverloadedException("Too many concurrent writes"));
+        pipeline = pipeline(2, 10, Duration.ofSeconds(1), false);
+
+        CompletableFuture<BulkResponseItem> a = pipeline.submit(delete("a"));
+        CompletableFuture<BulkResponseItem> b = pipeline.submit(delete("b"));
+
+        for (CompletableFuture<BulkResponseItem> f : List.of(a, b)) {
+            assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(OverloadedException.class);
+        }
+    }
+
+    @Test
+    void fullQueueRejectsAfterTheEnqueueTimeout() throws Exception {
+        CompletableFuture<BulkResponse> stalled = new CompletableFuture<>();
+        transport.on("es/bulk", req -> stalled);
+        pipeline = pipeline(1, 1, Duration.ofMillis(1), false);
+
+        CompletableFuture<BulkResponseItem> first = pipeline.submit(delete("a"));
+        assertThatThrownBy(() -> pipeline.submit(delete("b"))).isInstanceOf(WriteRejectedException.class);
+
+        stalled.complete(response(BulkRequest.of(r -> r.operations(delete("a"))), Set.of()));
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(pipeline.pending()).isZero();
+    }
+
+    @Test
+    void blockingAckWaitsForTheItem() throws Exception {
+        CompletableFuture<BulkResponse> stalled = new CompletableFuture<>();
+        transport.on("es/bulk", req -> stalled);
+        pipeline = pipeline(1, 10, Duration.ofMillis(1), false);
+
+        CompletableFuture<String> ack = pipeline.acknowledged(pipeline.submit(delete("a")), "a");
+        assertThat(ack).isNotDone();
+
+        stalled.complete(response(BulkRequest.of(r -> r.operations(delete("a"))), Set.of("a")));
+        assertThatThrownBy(() -> ack.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void ackOnEnqueueReturnsBeforeTheItemAndSwallowsItsFailure() throws Exception {
+        CompletableFuture<BulkResponse> stalled = new CompletableFuture<>();
+        transport.on("es/bulk", req -> stalled);
+        pipeline = pipeline(1, 10, Duration.ofMillis(1), true);
+
+        CompletableFuture<BulkResponseItem> item = pipeline.submit(delete("a"));
+        CompletableFuture<String> ack = pipeline.acknowledged(item, "a");
+        assertThat(ack).isCompletedWithValue("a");
+
+        stalled.complete(response(BulkRequest.of(r -> r.operations(delete("a"))), Set.of("a")));
+        assertThatThrownBy(() -> item.get(5, TimeUnit.SECONDS)).cause().isInstanceOf(IOException.class);
+        assertThat(ack).isCompletedWithValue("a");
+    }
+
+    private WritePipeline pipeline(int maxOperations, int queueCapacity, Duration linger, boolean ackOnEnqueue) {
+        return new WritePipeline(new ElasticsearchAsyncClient(transport), new WriteProperties(
+                maxOperations, DataSize.ofMegabytes(5), linger, 4, queueCapacity,
+                Duration.ofMillis(50), ackOnEnqueue, 0, Duration.ofMillis(10)));
+    }
+
+    private static BulkOperation delete(String id) {
+        return BulkOperation.of(o -> o.delete(d -> d.index("events").id(id)));
+    }
+
+    /** One item per operation, in request order; ids in {@code failing} get a 400. */
+    static BulkResponse response(BulkRequest request, Set<String> failing) {
+        List<BulkResponseItem> items = request.operations().stream().map(op -> {
+            String id = op.delete().id();
+            return BulkResponseItem.of(i -> {
+                i.operationType(OperationType.Delete).index("events").id(id);
+                if (failing.contains(id)) {
+                    i.status(400).error(e -> e.type("illegal_argument_exception").reason("rejected"));
+                } else {
+                    i.status(200).result("deleted");
+                }
+                return i;
+            });
+        }).toList();
+        return BulkResponse.of(r -> r.errors(!failing.isEmpty()).took(1).items(items));
+    }
+}